@@ -0,0 +1,326 @@
+package com.example.urlShortner.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * In-memory id -> original URL index that keeps its data off the Java heap.
+ *
+ * Short codes are Base62 encoded longs, so the key is the decoded id. The table is open addressing
+ * with linear probing over 16-byte slots (id, ref) in a direct buffer; the ref points into an arena
+ * of direct chunks holding [expiresAt millis | length | UTF-8 bytes]. An update appends a new arena
+ * record and swaps the ref with a single release store, so readers never see a half-written entry.
+ *
+ * Reads are lock-free. Writes are serialized (one writer at a time). Growing the table doesn't stop
+ * the world: a bigger table is published next to the old one and every write moves a batch of old
+ * slots across, readers check the new table first and fall back to the old one until it's drained.
+ *
+ * Memory is bounded by the arena: once it holds {@code maxChunks} chunks the oldest chunk is dropped
+ * (FIFO eviction) and every entry pointing into it reads as a miss.
+ */
+public class ShortCodeIndex {
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final int SLOT_BYTES = 16;
+    private static final long FREE = 0;        // key of an unused slot (ids start at 1)
+    private static final long REMOVED = -1;    // ref of a removed entry
+    private static final long NOT_FOUND = 0;
+    private static final double MAX_LOAD = 0.75;
+    private static final double HARD_LOAD = 0.9; // only reachable at MAX_CAPACITY
+    private static final int MAX_CAPACITY = 1 << 26; // 1 GB of slots, ~50M entries at MAX_LOAD
+    private static final int MIGRATE_PER_WRITE = 256;
+    private static final int RECORD_HEADER = 12;
+
+    private final Arena arena;
+    private final int initialCapacity;
+    private volatile Tables tables;
+
+    // Writer-only state, guarded by "this"
+    private int used;       // occupied slots in the current table, removed ones included
+    private int migrated;   // next slot of the previous table to move across
+
+    public ShortCodeIndex(int initialCapacity, int chunkBytes, int maxChunks) {
+        int capacity = Integer.highestOneBit(Math.max(16, Math.min(initialCapacity, MAX_CAPACITY)) - 1) << 1;
+        this.initialCapacity = capacity;
+        this.tables = new Tables(new Table(capacity), null);
+        this.arena = new Arena(chunkBytes, maxChunks);
+    }
+
+    /** Returns the URL stored for {@code id}, or null if it's missing, expired or evicted. */
+    public String get(long id) {
+        if (id <= FREE) {
+            return null;
+        }
+        Tables t = tables;
+        long ref = t.current.ref(id);
+        if (ref == NOT_FOUND && t.previous != null) {
+            ref = t.previous.ref(id);
+        }
+        if (ref == NOT_FOUND || ref == REMOVED) {
+            return null;
+        }
+        return arena.read(ref, System.currentTimeMillis());
+    }
+
+    /** Stores {@code url} for {@code id} until {@code expiresAtMillis}. Returns false if the URL can't be held. */
+    public synchronized boolean put(long id, String url, long expiresAtMillis) {
+        if (id <= FREE) {
+            return false;
+        }
+        long ref = arena.append(url.getBytes(StandardCharsets.UTF_8), expiresAtMillis);
+        return ref != NOT_FOUND && store(id, ref);
+    }
+
+    public synchronized void remove(long id) {
+        if (id <= FREE) {
+            return;
+        }
+        Tables t = tables;
+        // Only needs a marker when some table still knows the id, otherwise it's already a miss
+        if (t.current.ref(id) != NOT_FOUND || (t.previous != null && t.previous.ref(id) != NOT_FOUND)) {
+            store(id, REMOVED);
+        }
+    }
+
+    /** Drops every entry and shrinks back to the initial capacity. */
+    public synchronized void clear() {
+        tables = new Tables(new Table(initialCapacity), null);
+        used = 0;
+        migrated = 0;
+        // A reader that still holds the old tables must not resolve their refs, so retire the chunks too
+        arena.clear();
+    }
+
+    /** Occupied slots in the current table, including removed, expired and evicted ones not yet reclaimed. */
+    public synchronized int slotsUsed() {
+        return used;
+    }
+
+    public int capacity() {
+        return tables.current.capacity;
+    }
+
+    public long offHeapBytes() {
+        Tables t = tables;
+        long bytes = (long) t.current.capacity * SLOT_BYTES + arena.allocatedBytes();
+        if (t.previous != null) {
+            bytes += (long) t.previous.capacity * SLOT_BYTES;
+        }
+        return bytes;
+    }
+
+    public boolean isResizing() {
+        return tables.previous != null;
+    }
+
+    private boolean store(long id, long ref) {
+        Tables t = tables;
+        if (t.previous == null && used + 1 > t.current.capacity * MAX_LOAD) {
+            t = startResize(t);
+        }
+        // A full table at MAX_CAPACITY stops taking new ids; removal markers always fit
+        if (ref != REMOVED && used + 1 > t.current.capacity * HARD_LOAD && t.current.ref(id) == NOT_FOUND) {
+            return false;
+        }
+        if (t.current.put(id, ref)) {
+            used++;
+        }
+        if (t.previous != null) {
+            migrate(t, MIGRATE_PER_WRITE);
+        }
+        return true;
+    }
+
+    private Tables startResize(Tables t) {
+        // At MAX_CAPACITY this rebuilds at the same size, which still reclaims removed and evicted slots
+        int capacity = Math.min(t.current.capacity << 1, MAX_CAPACITY);
+        Tables next = new Tables(new Table(capacity), t.current);
+        used = 0;
+        migrated = 0;
+        tables = next;
+        return next;
+    }
+
+    private void migrate(Tables t, int batch) {
+        Table from = t.previous;
+        long now = System.currentTimeMillis();
+        int end = Math.min(from.capacity, migrated + batch);
+        for (int slot = migrated; slot < end; slot++) {
+            long id = from.keyAt(slot);
+            if (id == FREE) {
+                continue;
+            }
+            long ref = from.refAt(slot);
+            // Removed, expired and evicted entries stay behind; anything already in the new table is newer
+            if (ref == REMOVED || !arena.isLive(ref, now)) {
+                continue;
+            }
+            if (t.current.ref(id) == NOT_FOUND && t.current.put(id, ref)) {
+                used++;
+            }
+        }
+        migrated = end;
+        if (migrated == from.capacity) {
+            tables = new Tables(t.current, null);
+        }
+    }
+
+    private static final class Tables {
+        final Table current;
+        final Table previous; // non-null while a resize is in progress
+
+        Tables(Table current, Table previous) {
+            this.current = current;
+            this.previous = previous;
+        }
+    }
+
+    private static final class Table {
+        final ByteBuffer slots;
+        final int capacity;
+        final int mask;
+
+        Table(int capacity) {
+            this.slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+        }
+
+        long ref(long id) {
+            for (int slot = home(id); ; slot = (slot + 1) & mask) {
+                long key = keyAt(slot);
+                if (key == id) {
+                    return refAt(slot);
+                }
+                if (key == FREE) {
+                    return NOT_FOUND;
+                }
+            }
+        }
+
+        /** Returns true if a free slot was taken. */
+        boolean put(long id, long ref) {
+            for (int slot = home(id); ; slot = (slot + 1) & mask) {
+                long key = keyAt(slot);
+                if (key == id) {
+                    LONGS.setRelease(slots, slot * SLOT_BYTES + 8, ref);
+                    return false;
+                }
+                if (key == FREE) {
+                    // Ref first, then publish the key: a reader that sees the key sees the ref
+                    LONGS.set(slots, slot * SLOT_BYTES + 8, ref);
+                    LONGS.setRelease(slots, slot * SLOT_BYTES, id);
+                    return true;
+                }
+            }
+        }
+
+        long keyAt(int slot) {
+            return (long) LONGS.getAcquire(slots, slot * SLOT_BYTES);
+        }
+
+        long refAt(int slot) {
+            return (long) LONGS.getAcquire(slots, slot * SLOT_BYTES + 8);
+        }
+
+        private int home(long id) {
+            long h = id * 0x9E3779B97F4A7C15L; // sequential ids would otherwise cluster
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+
+    /**
+     * Append-only chunks kept in a ring. A ref is (chunk sequence << 32 | offset); a chunk whose ring
+     * slot has been taken by a newer sequence is gone, so refs into it stop resolving.
+     */
+    private static final class Arena {
+        private final int chunkBytes;
+        private final int maxChunks;
+        private volatile Chunk[] ring;
+        private Chunk head;
+        private int nextSeq = 1;
+
+        Arena(int chunkBytes, int maxChunks) {
+            this.chunkBytes = chunkBytes;
+            this.maxChunks = Math.max(2, maxChunks);
+            this.ring = new Chunk[this.maxChunks];
+        }
+
+        long append(byte[] url, long expiresAtMillis) {
+            int length = RECORD_HEADER + url.length;
+            if (length > chunkBytes) {
+                return NOT_FOUND;
+            }
+            if (head == null || head.position + length > chunkBytes) {
+                Chunk chunk = new Chunk(nextSeq++, ByteBuffer.allocateDirect(chunkBytes));
+                Chunk[] next = ring.clone();
+                next[chunk.seq % maxChunks] = chunk; // drops the oldest chunk once the ring is full
+                ring = next;
+                head = chunk;
+            }
+            int offset = head.position;
+            head.buffer.putLong(offset, expiresAtMillis);
+            head.buffer.putInt(offset + 8, url.length);
+            head.buffer.put(offset + RECORD_HEADER, url);
+            head.position += length;
+            return ((long) head.seq << 32) | offset;
+        }
+
+        void clear() {
+            ring = new Chunk[maxChunks];
+            head = null;
+        }
+
+        String read(long ref, long now) {
+            Chunk chunk = chunk(ref);
+            if (chunk == null) {
+                return null;
+            }
+            int offset = (int) ref;
+            ByteBuffer buffer = chunk.buffer;
+            if (buffer.getLong(offset) <= now) {
+                return null;
+            }
+            byte[] url = new byte[buffer.getInt(offset + 8)];
+            buffer.get(offset + RECORD_HEADER, url);
+            return new String(url, StandardCharsets.UTF_8);
+        }
+
+        boolean isLive(long ref, long now) {
+            Chunk chunk = chunk(ref);
+            return chunk != null && chunk.buffer.getLong((int) ref) > now;
+        }
+
+        long allocatedBytes() {
+            long bytes = 0;
+            for (Chunk chunk : ring) {
+                if (chunk != null) {
+                    bytes += chunkBytes;
+                }
+            }
+            return bytes;
+        }
+
+        private Chunk chunk(long ref) {
+            int seq = (int) (ref >>> 32);
+            Chunk chunk = ring[seq % maxChunks];
+            return chunk != null && chunk.seq == seq ? chunk : null;
+        }
+    }
+
+    private static final class Chunk {
+        final int seq;
+        final ByteBuffer buffer;
+        int position;
+
+        Chunk(int seq, ByteBuffer buffer) {
+            this.seq = seq;
+            this.buffer = buffer.order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -1,4 +1,104 @@
 package com.example.urlShortner.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write splitting. Enabled with {@code app.datasource.routing.enabled=true};
+ * otherwise Spring Boot's single auto-configured datasource is used as before.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
 public class DataSourceConfig {
+
+    // Same spring.datasource.* / spring.datasource.hikari.* settings the auto-configured pool used
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                      ReplicaProperties properties,
+                                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReplicaProperties.Replica replica = properties.getReplicas().get(i);
+            String name = "replica-" + i;
+
+            // Replica pools inherit the primary's sizing and timeouts
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setPoolName(name);
+            config.setJdbcUrl(replica.getUrl());
+            if (StringUtils.hasText(replica.getUsername())) {
+                config.setUsername(replica.getUsername());
+                config.setPassword(replica.getPassword());
+            }
+            config.setReadOnly(true);
+            // Don't fail startup because a replica is unreachable; the health check keeps it out of rotation
+            config.setInitializationFailTimeout(-1);
+
+            // Replica pools are not beans, so Boot won't bind their hikaricp.* metrics for us
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null) {
+                config.setMetricRegistry(null);
+                config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+
+            replicas.add(new ReplicaRoutingDataSource.Replica(name, new HikariDataSource(config)));
+        }
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        // Delay picking a pool until the first statement, when the transaction's read-only flag is known
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Spring holds a session's connection until the request ends (open-in-view), so a replica picked
+     * for a read-only lookup would also be used by a write later in the same request. Give the
+     * connection back after every transaction so each one is routed on its own.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ReplicaHealthIndicator replicaHealthIndicator(ReplicaRoutingDataSource routingDataSource,
+                                                        ReplicaProperties properties) {
+        return new ReplicaHealthIndicator(routingDataSource, properties);
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.urlShortner.config;
+
+import com.example.urlShortner.config.ReplicaRoutingDataSource.Replica;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Periodically pings every replica and reads its replication lag. Replicas that are down or
+ * further behind than {@code app.datasource.routing.max-lag-seconds} are taken out of rotation,
+ * so reads fall back to the primary.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReplicaHealthIndicator implements HealthIndicator, MeterBinder {
+
+    private static final String[] LAG_QUERIES = {"SHOW REPLICA STATUS", "SHOW SLAVE STATUS"};
+    private static final String[] LAG_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final ReplicaProperties properties;
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : routingDataSource.getReplicas()) {
+            check(replica);
+        }
+    }
+
+    private void check(Replica replica) {
+        boolean wasAvailable = replica.isAvailable();
+
+        try (Connection connection = replica.getDataSource().getConnection()) {
+            if (!connection.isValid(2)) {
+                replica.update(false, false, -1);
+            } else {
+                long lag = readLagSeconds(connection);
+                boolean lagging = lag < 0 || lag > properties.getMaxLagSeconds();
+                replica.update(true, lagging, lag);
+            }
+        } catch (SQLException e) {
+            log.debug("Replica {} health check failed", replica.getName(), e);
+            replica.update(false, false, -1);
+        }
+
+        if (wasAvailable != replica.isAvailable()) {
+            log.warn("Replica {} is now {} (lag={}s)", replica.getName(),
+                    replica.isAvailable() ? "in rotation" : "out of rotation", replica.getLagSeconds());
+        }
+    }
+
+    /**
+     * Returns the lag in seconds, 0 if the server is not replicating (or not MySQL),
+     * and -1 if replication is configured but stopped.
+     */
+    private long readLagSeconds(Connection connection) {
+        for (String query : LAG_QUERIES) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(query)) {
+                if (!rs.next()) {
+                    return 0;
+                }
+                for (String column : LAG_COLUMNS) {
+                    try {
+                        long lag = rs.getLong(column);
+                        return rs.wasNull() ? -1 : lag;
+                    } catch (SQLException ignored) {
+                        // column name depends on the MySQL version
+                    }
+                }
+                return 0;
+            } catch (SQLException ignored) {
+                // try the legacy statement next
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public Health health() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        long available = 0;
+        for (Replica replica : routingDataSource.getReplicas()) {
+            if (replica.isAvailable()) {
+                available++;
+            }
+            details.put(replica.getName(), Map.of(
+                    "status", replica.isAvailable() ? "UP" : "OUT_OF_ROTATION",
+                    "healthy", replica.isHealthy(),
+                    "lagSeconds", replica.getLagSeconds()
+            ));
+        }
+        details.put("available", available);
+
+        // Reads fall back to the primary, so a missing replica degrades capacity but not correctness
+        return Health.up().withDetails(details).build();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        for (Replica replica : routingDataSource.getReplicas()) {
+            Gauge.builder("db.replica.lag", replica, Replica::getLagSeconds)
+                    .description("Replication lag reported by the replica (-1 when unknown)")
+                    .baseUnit("seconds")
+                    .tag("pool", replica.getName())
+                    .register(registry);
+            Gauge.builder("db.replica.available", replica, r -> r.isAvailable() ? 1 : 0)
+                    .description("Whether the replica is currently receiving read-only traffic")
+                    .tag("pool", replica.getName())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.urlShortner.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class ReplicaProperties {
+
+    private boolean enabled;
+
+    // Replicas further behind the primary than this are skipped until they catch up
+    private long maxLagSeconds = 5;
+
+    private long healthCheckIntervalMs = 5000;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
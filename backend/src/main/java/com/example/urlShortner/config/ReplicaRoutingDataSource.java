@@ -0,0 +1,95 @@
+package com.example.urlShortner.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy replica (round robin) and everything else to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy so the lookup happens after the transaction is set up.
+ * Owns the replica pools (they are not beans) and closes them on shutdown; the primary is a bean.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    @Getter
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<Replica> replicas) {
+        this.replicas = List.copyOf(replicas);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach(replica -> targets.put(replica.getName(), replica.getDataSource()));
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        return pickReadKey();
+    }
+
+    /** Pool for reads that run outside a transaction, such as streamed exports. */
+    public DataSource readTarget() {
+        return getResolvedDataSources().get(pickReadKey());
+    }
+
+    private String pickReadKey() {
+        int size = replicas.size();
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), size));
+            if (replica.isAvailable()) {
+                return replica.getName();
+            }
+        }
+
+        // No replica is healthy and caught up -> serve the read from the primary
+        return PRIMARY;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.getDataSource().close());
+    }
+
+    @Getter
+    public static class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+
+        // Replicas start out of rotation until the first health check passes
+        private volatile boolean healthy = false;
+        private volatile boolean lagging = false;
+        private volatile long lagSeconds = -1;
+
+        public Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public boolean isAvailable() {
+            return healthy && !lagging;
+        }
+
+        void update(boolean healthy, boolean lagging, long lagSeconds) {
+            this.healthy = healthy;
+            this.lagging = lagging;
+            this.lagSeconds = lagSeconds;
+        }
+    }
+}
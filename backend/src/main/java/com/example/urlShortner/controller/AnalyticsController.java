@@ -1,8 +1,10 @@
 package com.example.urlShortner.controller;
 
 import com.example.urlShortner.dto.AnalyticsResponse;
+import com.example.urlShortner.dto.UrlResponseDTO;
 import com.example.urlShortner.entity.Url;
 import com.example.urlShortner.service.AnalyticsService;
+import com.example.urlShortner.service.UrlService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
@@ -16,10 +18,16 @@ import java.util.List;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
+    private final UrlService urlService;
 
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
 
+    @GetMapping
+    public List<UrlResponseDTO> getUrlsByOwner(@RequestParam String owner) {
+        return urlService.getUrlsByOwner(owner);
+    }
+
     @GetMapping("/{shortCode}/analytics")
     public Object getAnalytics(@PathVariable String shortCode) {
 
@@ -0,0 +1,63 @@
+package com.example.urlShortner.controller;
+
+import com.example.urlShortner.export.ExportFormat;
+import com.example.urlShortner.export.ExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Full exports of an owner's (or a single code's) links and clicks. Resume an interrupted export
+ * by passing the cursor of the last row received as {@code after}. With sharding a cursor only
+ * holds until the next shard migration; after that it's answered with a 400.
+ */
+@RestController
+@RequestMapping("/api/v1/export")
+@Profile("!embedded")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ExportService exportService;
+
+    @GetMapping("/links")
+    public ResponseEntity<StreamingResponseBody> exportLinks(@RequestParam(required = false) String owner,
+                                                             @RequestParam(required = false) String shortCode,
+                                                             @RequestParam(defaultValue = "csv") String format,
+                                                             @RequestParam(defaultValue = "false") boolean gzip,
+                                                             @RequestParam(required = false) String after) {
+        return export(ExportService.Dataset.LINKS, owner, shortCode, format, gzip, after);
+    }
+
+    @GetMapping("/clicks")
+    public ResponseEntity<StreamingResponseBody> exportClicks(@RequestParam(required = false) String owner,
+                                                              @RequestParam(required = false) String shortCode,
+                                                              @RequestParam(defaultValue = "csv") String format,
+                                                              @RequestParam(defaultValue = "false") boolean gzip,
+                                                              @RequestParam(required = false) String after) {
+        return export(ExportService.Dataset.CLICKS, owner, shortCode, format, gzip, after);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(ExportService.Dataset dataset, String owner, String shortCode,
+                                                         String format, boolean gzip, String after) {
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        String filename = dataset.name().toLowerCase() + "-" + (owner != null ? owner : shortCode)
+                + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename, StandardCharsets.UTF_8).build().toString());
+
+        // Last: from here on an export slot is held until the response completes
+        return response.body(exportService.export(dataset, owner, shortCode, after, exportFormat, gzip));
+    }
+}
@@ -1,9 +1,5 @@
 package com.example.urlShortner.controller;
 
-import com.example.urlShortner.entity.Url;
-import com.example.urlShortner.entity.UrlClick;
-import com.example.urlShortner.repository.UrlClickRepository;
-import com.example.urlShortner.repository.UrlRepository;
 import com.example.urlShortner.service.UrlService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +8,6 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Controller
@@ -20,35 +15,24 @@ import java.util.Optional;
 public class RedirectController {
 
     private final UrlService urlService;
-    private final UrlClickRepository urlClickRepository;
-    private final UrlRepository urlRepository;
 
     @GetMapping("/{shortCode}")
     public String redirect(@PathVariable String shortCode, HttpServletRequest request) {
-        Optional<Url> optionalUrl = urlService.getUrlEntity(shortCode);
-
-        if (optionalUrl.isEmpty()) {
-            return "redirect:/error";
+        // Served from the cache tiers when possible; only misses read the link itself
+        Optional<String> originalUrl = urlService.getOriginalUrl(shortCode);
+
+        if (originalUrl.isEmpty()) {
+            // Unknown and expired codes both miss, tell them apart only here
+            return urlService.getUrlEntity(shortCode).isPresent()
+                    ? "expired" // Renders templates/expired.html
+                    : "redirect:/error";
         }
 
-        Url urlEntity = optionalUrl.get();
-
-        if (urlEntity.getExpiryDate() != null && urlEntity.getExpiryDate().isBefore(LocalDateTime.now())) {
-            return "expired"; // Renders templates/expired.html
-        }
-
-        UrlClick click = UrlClick.builder()
-                .url(urlEntity)
-                .ipAddress(request.getRemoteAddr())
-                .userAgent(request.getHeader(HttpHeaders.USER_AGENT))
-                .referrer(request.getHeader(HttpHeaders.REFERER))
-                .build();
-        urlClickRepository.save(click);
-
-        urlEntity.setClickCount(urlEntity.getClickCount() + 1);
-        urlEntity.setLastAccessedAt(LocalDateTime.now());
-        urlRepository.save(urlEntity);
+        urlService.recordClick(shortCode,
+                request.getRemoteAddr(),
+                request.getHeader(HttpHeaders.USER_AGENT),
+                request.getHeader(HttpHeaders.REFERER));
 
-        return "redirect:" + urlEntity.getOriginalUrl();
+        return "redirect:" + originalUrl.get();
     }
 }
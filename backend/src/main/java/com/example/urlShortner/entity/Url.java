@@ -6,7 +6,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "urls")
+@Table(name = "urls", indexes = {
+        @Index(name = "idx_urls_owner", columnList = "owner"),
+        @Index(name = "idx_urls_expiry", columnList = "expiry_date")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -40,6 +43,11 @@ public class Url {
 
     @Column(name = "owner")
     private String owner;
+
+    // Any change to the row, clicks included; shard migrations re-copy rows changed during the bulk copy
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     @Builder.Default
     @OneToMany(mappedBy = "url", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<UrlClick> clicks = new ArrayList<>();
@@ -48,9 +56,15 @@ public class Url {
     @PrePersist
     public void prePersist() {
         this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
             if (this.clickCount == null) {
                 this.clickCount = 0L;
         }
     }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
 }
 
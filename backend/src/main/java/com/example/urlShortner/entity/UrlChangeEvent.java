@@ -0,0 +1,40 @@
+package com.example.urlShortner.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/** Outbox row written in the same transaction as the link change it describes. */
+@Entity
+@Table(name = "url_change_events", indexes = @Index(name = "idx_url_change_events_published", columnList = "published_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UrlChangeEvent {
+
+    // Only changes to existing links: those are what other instances may have cached
+    public enum Type { UPDATED, DELETED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 16)
+    private Type type;
+
+    @Column(name = "short_code", nullable = false)
+    private String shortCode;
+
+    @Column(name = "original_url", columnDefinition = "TEXT")
+    private String originalUrl;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+}
@@ -0,0 +1,7 @@
+package com.example.urlShortner.events;
+
+import com.example.urlShortner.entity.UrlChangeEvent;
+
+/** A link change as delivered from the url-changes stream. {@code originalUrl} is null for deletes. */
+public record UrlChange(UrlChangeEvent.Type type, String shortCode, String originalUrl) {
+}
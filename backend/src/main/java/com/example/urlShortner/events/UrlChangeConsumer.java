@@ -0,0 +1,161 @@
+package com.example.urlShortner.events;
+
+import com.example.urlShortner.entity.UrlChangeEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads the url-changes stream on every instance and hands each change to the local
+ * {@link UrlChangeListener}s, in stream order. The last handled entry id is kept in Redis per
+ * instance id, so a restarted instance replays whatever it missed. The offset only moves past an
+ * entry once every listener has handled it.
+ */
+@Slf4j
+@Component
+@Profile("!embedded")
+@ConditionalOnProperty(name = "app.events.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UrlChangeConsumer implements MeterBinder {
+
+    private static final String OFFSETS_KEY = "url-changes:offsets";
+    private static final RecordId START = RecordId.of(0, 0);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectProvider<UrlChangeListener> listeners;
+
+    @Value("${app.events.instance-id}")
+    private String instanceId;
+
+    @Value("${app.events.batch-size:500}")
+    private int batchSize;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final LongAdder handled = new LongAdder();
+    private volatile RecordId offset;
+    private volatile boolean failing;
+
+    @Scheduled(fixedDelayString = "${app.events.poll-interval-ms:500}")
+    public void poll() {
+        try {
+            if (offset == null) {
+                offset = startingOffset();
+            }
+            List<MapRecord<String, Object, Object>> records = readAfter(offset);
+
+            if (records != null && !records.isEmpty()) {
+                if (records.size() == batchSize && fellBehindTrim(offset)) {
+                    reset();
+                }
+                for (MapRecord<String, Object, Object> record : records) {
+                    UrlChange change = toChange(record.getValue());
+                    listeners.orderedStream().forEach(listener -> listener.onUrlChanged(change));
+                    offset = record.getId();
+                    handled.increment();
+                }
+                redisTemplate.opsForHash().put(OFFSETS_KEY, instanceId, offset.getValue());
+            }
+            updateLag();
+            failing = false;
+        } catch (RuntimeException e) {
+            // The offset stays on the last handled entry, so the next poll retries from there
+            if (!failing) {
+                log.warn("Url change consumer failed, will retry: {}", e.getMessage());
+                failing = true;
+            }
+        }
+    }
+
+    // read() takes StreamOffset<K>... and can't be @SafeVarargs (interface method); a single offset is safe
+    @SuppressWarnings("unchecked")
+    private List<MapRecord<String, Object, Object>> readAfter(RecordId id) {
+        return redisTemplate.opsForStream().read(StreamReadOptions.empty().count(batchSize),
+                StreamOffset.create(UrlChangeRelay.STREAM_KEY, ReadOffset.from(id)));
+    }
+
+    private RecordId startingOffset() {
+        Object saved = redisTemplate.opsForHash().get(OFFSETS_KEY, instanceId);
+        if (saved == null) {
+            // First run of this instance id: its caches are empty, nothing to catch up on
+            RecordId latest = latestId();
+            log.info("Url change consumer {} starting at {}", instanceId, latest.getValue());
+            return latest;
+        }
+        RecordId resumeFrom = RecordId.of(saved.toString());
+        if (fellBehindTrim(resumeFrom)) {
+            reset();
+        }
+        log.info("Url change consumer {} resuming after {}", instanceId, resumeFrom.getValue());
+        return resumeFrom;
+    }
+
+    /** True if entries after {@code id} may already have been trimmed from the stream. */
+    private boolean fellBehindTrim(RecordId id) {
+        List<MapRecord<String, Object, Object>> first = redisTemplate.opsForStream()
+                .range(UrlChangeRelay.STREAM_KEY, Range.unbounded(), Limit.limit().count(1));
+        return first != null && !first.isEmpty() && compare(first.get(0).getId(), id) > 0;
+    }
+
+    private void reset() {
+        log.warn("Url change consumer {} missed trimmed changes, resetting local caches", instanceId);
+        listeners.orderedStream().forEach(UrlChangeListener::onReset);
+    }
+
+    private void updateLag() {
+        RecordId latest = latestId();
+        lagMillis.set(compare(latest, offset) > 0 ? latest.getTimestamp() - offset.getTimestamp() : 0);
+    }
+
+    private RecordId latestId() {
+        List<MapRecord<String, Object, Object>> last = redisTemplate.opsForStream()
+                .reverseRange(UrlChangeRelay.STREAM_KEY, Range.unbounded(), Limit.limit().count(1));
+        return last == null || last.isEmpty() ? START : last.get(0).getId();
+    }
+
+    private static UrlChange toChange(Map<Object, Object> fields) {
+        Object originalUrl = fields.get("originalUrl");
+        return new UrlChange(
+                UrlChangeEvent.Type.valueOf(fields.get("type").toString()),
+                fields.get("shortCode").toString(),
+                originalUrl != null ? originalUrl.toString() : null);
+    }
+
+    private static int compare(RecordId a, RecordId b) {
+        int byTime = Long.compare(a.getTimestamp(), b.getTimestamp());
+        return byTime != 0 ? byTime : Long.compare(a.getSequence(), b.getSequence());
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("url.events.consumer.lag", lagMillis, AtomicLong::get)
+                .description("How far this instance trails the newest url change in the stream")
+                .baseUnit("milliseconds")
+                .register(registry);
+        FunctionCounter.builder("url.events.consumer.handled", handled, LongAdder::sum)
+                .description("Url changes handled by this instance")
+                .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.urlShortner.events;
+
+/**
+ * Implemented by anything holding per-instance copies of link data. Changes arrive in stream order,
+ * at least once, so handling the same change twice must be harmless.
+ */
+public interface UrlChangeListener {
+
+    void onUrlChanged(UrlChange change);
+
+    /** Called when changes may have been missed (this instance fell behind the trimmed stream). */
+    default void onReset() {
+    }
+}
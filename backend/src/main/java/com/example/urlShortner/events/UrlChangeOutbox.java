@@ -0,0 +1,30 @@
+package com.example.urlShortner.events;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.entity.UrlChangeEvent;
+import com.example.urlShortner.repository.UrlChangeEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/** Records link changes in the outbox table; call it inside the transaction that makes the change. */
+@Component
+@Profile("!embedded")
+@ConditionalOnProperty(name = "app.events.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UrlChangeOutbox {
+
+    private final UrlChangeEventRepository repository;
+
+    public void record(UrlChangeEvent.Type type, Url url) {
+        repository.save(UrlChangeEvent.builder()
+                .type(type)
+                .shortCode(url.getShortCode())
+                .originalUrl(type == UrlChangeEvent.Type.DELETED ? null : url.getOriginalUrl())
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
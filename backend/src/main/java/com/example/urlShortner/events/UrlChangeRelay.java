@@ -0,0 +1,172 @@
+package com.example.urlShortner.events;
+
+import com.example.urlShortner.entity.UrlChangeEvent;
+import com.example.urlShortner.repository.UrlChangeEventRepository;
+import com.example.urlShortner.service.CacheService;
+import com.example.urlShortner.sharding.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves outbox rows to the url-changes Redis stream. One instance at a time holds the relay lock,
+ * which keeps the stream in outbox order. A row is marked published only after it's in the stream,
+ * so a crash in between publishes it again (at-least-once).
+ *
+ * The shared Redis entry is dropped before the change is announced: once an instance hears about a
+ * change and evicts its local copy, the next miss can't pick the old value back up from Redis.
+ */
+@Slf4j
+@Component
+@Profile("!embedded")
+@ConditionalOnProperty(name = "app.events.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class UrlChangeRelay implements MeterBinder {
+
+    static final String STREAM_KEY = "url-changes";
+    private static final String LOCK_KEY = "url-changes:relay-lock";
+    private static final RedisScript<Long> RENEW_LOCK = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private final UrlChangeEventRepository repository;
+    private final CacheService cacheService;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectProvider<ShardRouter> shardRouter;
+
+    @Value("${app.events.instance-id}")
+    private String instanceId;
+
+    @Value("${app.events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.events.stream-max-length:100000}")
+    private long streamMaxLength;
+
+    @Value("${app.events.lock-ttl-ms:10000}")
+    private long lockTtlMs;
+
+    @Value("${app.events.retention-hours:24}")
+    private long retentionHours;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private volatile boolean leader;
+    private volatile boolean failing;
+
+    @Scheduled(fixedDelayString = "${app.events.relay-interval-ms:200}")
+    public void relay() {
+        try {
+            leader = holdLock();
+            if (!leader) {
+                lagMillis.set(0);
+                return;
+            }
+            AtomicLong oldest = new AtomicLong();
+            onEveryShard(() -> oldest.accumulateAndGet(drain(), Math::max));
+            lagMillis.set(oldest.get());
+            if (failing) {
+                log.info("Url change relay recovered");
+                failing = false;
+            }
+        } catch (RuntimeException e) {
+            // Nothing is lost: unpublished rows stay in the outbox until a relay gets through
+            if (!failing) {
+                log.warn("Url change relay failed, will retry: {}", e.getMessage());
+                failing = true;
+            }
+        }
+    }
+
+    @Scheduled(fixedRate = 3600000) // every 1 hour
+    public void purgePublished() {
+        if (leader) {
+            onEveryShard(() -> repository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours)));
+        }
+    }
+
+    /** Publishes pending rows of the current shard; returns the age of the oldest one in ms. */
+    private long drain() {
+        long oldestAge = 0;
+        List<UrlChangeEvent> batch;
+        do {
+            batch = repository.findByPublishedAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            if (oldestAge == 0) {
+                long createdAt = batch.get(0).getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                oldestAge = Math.max(1, System.currentTimeMillis() - createdAt);
+            }
+            for (UrlChangeEvent event : batch) {
+                cacheService.deleteUrl(event.getShortCode());
+                redisTemplate.opsForStream().add(toRecord(event));
+            }
+            repository.markPublished(batch.stream().map(UrlChangeEvent::getId).toList(), LocalDateTime.now());
+        } while (batch.size() == batchSize && holdLock());
+
+        redisTemplate.opsForStream().trim(STREAM_KEY, streamMaxLength, true);
+        return oldestAge;
+    }
+
+    private MapRecord<String, String, String> toRecord(UrlChangeEvent event) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("type", event.getType().name());
+        fields.put("shortCode", event.getShortCode());
+        if (event.getOriginalUrl() != null) {
+            fields.put("originalUrl", event.getOriginalUrl());
+        }
+        return StreamRecords.newRecord().in(STREAM_KEY).ofMap(fields);
+    }
+
+    private boolean holdLock() {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, instanceId, Duration.ofMillis(lockTtlMs));
+        if (Boolean.TRUE.equals(acquired)) {
+            log.info("Instance {} is now relaying url changes", instanceId);
+            return true;
+        }
+        Long renewed = redisTemplate.execute(RENEW_LOCK, List.of(LOCK_KEY), instanceId, String.valueOf(lockTtlMs));
+        return renewed != null && renewed == 1;
+    }
+
+    private void onEveryShard(Runnable work) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            work.run();
+        } else {
+            router.forEachShard(work);
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("url.events.relay.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest unpublished url change seen by the last relay pass")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("url.events.relay.leader", this, relay -> relay.leader ? 1 : 0)
+                .description("1 if this instance currently relays url changes")
+                .register(registry);
+    }
+}
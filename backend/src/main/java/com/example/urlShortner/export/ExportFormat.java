@@ -0,0 +1,130 @@
+package com.example.urlShortner.export;
+
+import com.example.urlShortner.exception.BadRequestException;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/** Row-at-a-time encoders for exports. Nothing is buffered beyond the writer's own buffer. */
+public enum ExportFormat {
+
+    CSV("text/csv;charset=UTF-8", "csv") {
+        @Override
+        RowWriter open(OutputStream out, List<String> columns, ObjectMapper objectMapper) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            RowWriter rows = new RowWriter() {
+                @Override
+                public void row(Object[] values) throws IOException {
+                    for (int i = 0; i < values.length; i++) {
+                        if (i > 0) {
+                            writer.write(',');
+                        }
+                        if (values[i] != null) {
+                            writeCsvField(writer, values[i].toString());
+                        }
+                    }
+                    writer.write("\r\n");
+                }
+
+                @Override
+                public void finish() throws IOException {
+                    writer.flush();
+                }
+            };
+            rows.row(columns.toArray());
+            return rows;
+        }
+    },
+
+    NDJSON("application/x-ndjson", "ndjson") {
+        @Override
+        RowWriter open(OutputStream out, List<String> columns, ObjectMapper objectMapper) throws IOException {
+            JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            return new RowWriter() {
+                @Override
+                public void row(Object[] values) throws IOException {
+                    json.writeStartObject();
+                    for (int i = 0; i < values.length; i++) {
+                        Object value = values[i];
+                        if (value == null) {
+                            json.writeNullField(columns.get(i));
+                        } else if (value instanceof Long number) {
+                            json.writeNumberField(columns.get(i), number);
+                        } else {
+                            json.writeStringField(columns.get(i), value.toString());
+                        }
+                    }
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                }
+
+                @Override
+                public void finish() throws IOException {
+                    json.close();
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat parse(String format) {
+        try {
+            return valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported export format: " + format + " (use csv or ndjson)");
+        }
+    }
+
+    abstract RowWriter open(OutputStream out, List<String> columns, ObjectMapper objectMapper) throws IOException;
+
+    interface RowWriter {
+
+        void row(Object[] values) throws IOException;
+
+        /** Flushes everything written so far; doesn't close the underlying stream. */
+        void finish() throws IOException;
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break and double the quotes
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
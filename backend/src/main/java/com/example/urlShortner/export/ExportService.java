@@ -0,0 +1,283 @@
+package com.example.urlShortner.export;
+
+import com.example.urlShortner.config.ReplicaRoutingDataSource;
+import com.example.urlShortner.exception.BadRequestException;
+import com.example.urlShortner.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams links or clicks straight from the database to the response: one forward-only cursor per
+ * database, each row encoded and written as soon as it's read, so memory doesn't grow with the export.
+ *
+ * Every row starts with a cursor ("source:id"); passing the last one received as {@code after}
+ * resumes the export behind it. Rows come in id order per database, databases in a fixed order.
+ * With sharding the source is a physical shard, and the cursor also carries the placement version
+ * it was read under ("source:id@version"). A migration moves rows to another database with new ids,
+ * so a cursor from before it is rejected with a 400 instead of skipping or repeating rows.
+ */
+@Service
+@Profile("!embedded")
+public class ExportService {
+
+    private static final String DEFAULT_SOURCE = "db";
+
+    public enum Dataset {
+        LINKS("SELECT id, short_code, original_url, owner, click_count, created_at, last_accessed_at, expiry_date"
+                + " FROM urls WHERE %s = ? AND id > ? ORDER BY id",
+                "owner", "short_code",
+                List.of("cursor", "shortCode", "originalUrl", "owner", "clickCount", "createdAt", "lastAccessedAt", "expiryDate")),
+
+        CLICKS("SELECT c.id, u.short_code, c.clicked_at, c.ip_address, c.user_agent, c.referrer"
+                + " FROM url_clicks c JOIN urls u ON u.id = c.url_id WHERE %s = ? AND c.id > ? ORDER BY c.id",
+                "u.owner", "u.short_code",
+                List.of("cursor", "shortCode", "clickedAt", "ipAddress", "userAgent", "referrer"));
+
+        private final String byOwner;
+        private final String byShortCode;
+        private final List<String> columns;
+
+        Dataset(String sql, String ownerColumn, String shortCodeColumn, List<String> columns) {
+            this.byOwner = sql.formatted(ownerColumn);
+            this.byShortCode = sql.formatted(shortCodeColumn);
+            this.columns = columns;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final ObjectProvider<ShardRouter> shardRouter;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+    private final ObjectMapper objectMapper;
+    private final Semaphore running;
+    private final int fetchSize;
+    private final long timeoutMillis;
+
+    public ExportService(DataSource dataSource,
+                         ObjectProvider<ShardRouter> shardRouter,
+                         ObjectProvider<ReplicaRoutingDataSource> replicaRouting,
+                         ObjectMapper objectMapper,
+                         @Value("${app.export.max-concurrent:2}") int maxConcurrent,
+                         @Value("${app.export.fetch-size:1000}") int fetchSize,
+                         @Value("${app.export.timeout-minutes:60}") long timeoutMinutes) {
+        this.dataSource = dataSource;
+        this.shardRouter = shardRouter;
+        this.replicaRouting = replicaRouting;
+        this.objectMapper = objectMapper;
+        this.running = new Semaphore(maxConcurrent);
+        this.fetchSize = fetchSize;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+    }
+
+    /**
+     * Validates the request and reserves one of the export slots. Each running export holds a
+     * database connection until it finishes, so extra ones are turned away instead of queued.
+     * The slot goes back when the body has been written, or when the request ends without it
+     * having run (client gone before the async dispatch, timeout while queued); call this last.
+     */
+    public StreamingResponseBody export(Dataset dataset, String owner, String shortCode, String after,
+                                        ExportFormat format, boolean gzip) {
+        if ((owner == null) == (shortCode == null)) {
+            throw new BadRequestException("Pass either owner or shortCode");
+        }
+        ShardRouter router = shardRouter.getIfAvailable();
+        String placement = router != null ? String.valueOf(router.getPlacementVersion()) : null;
+        List<Source> sources = resumeFrom(sources(shortCode), after, placement);
+        if (!running.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many exports running, try again later");
+        }
+
+        String sql = owner != null ? dataset.byOwner : dataset.byShortCode;
+        String key = owner != null ? owner : shortCode;
+        // Whoever claims the slot first releases it: the body, or the end of the request if the body never ran
+        AtomicBoolean claimed = new AtomicBoolean();
+        bindToRequest(() -> {
+            if (claimed.compareAndSet(false, true)) {
+                running.release();
+            }
+        });
+        String cursorSuffix = placement != null ? "@" + placement : "";
+        return out -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                write(out, dataset, sql, key, sources, format, gzip, cursorSuffix);
+            } finally {
+                running.release();
+            }
+        };
+    }
+
+    // Only this request gets the long timeout; other async requests keep the container default
+    private void bindToRequest(Runnable release) {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return; // not called from a request, the caller runs the body itself
+        }
+        WebAsyncUtils.getAsyncManager(attributes.getRequest()).registerCallableInterceptor(release,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                        ((AsyncWebRequest) request).setTimeout(timeoutMillis);
+                    }
+
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        release.run();
+                    }
+                });
+    }
+
+    private void write(OutputStream out, Dataset dataset, String sql, String key, List<Source> sources,
+                       ExportFormat format, boolean gzip, String cursorSuffix) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+        ExportFormat.RowWriter writer = format.open(gzip ? compressed : out, dataset.columns, objectMapper);
+        for (Source source : sources) {
+            stream(source, dataset, sql, key, writer, cursorSuffix);
+        }
+        writer.finish();
+        if (compressed != null) {
+            compressed.finish();
+        }
+    }
+
+    private void stream(Source source, Dataset dataset, String sql, String key,
+                        ExportFormat.RowWriter writer, String cursorSuffix) throws IOException {
+        try (Connection connection = source.dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            prepareStreaming(connection, statement);
+            statement.setString(1, key);
+            statement.setLong(2, source.afterId);
+
+            ShardRouter router = shardRouter.getIfAvailable();
+            Object[] row = new Object[dataset.columns.size()];
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    // Mid-migration a shard's links are on two databases; only export them from where they're placed
+                    if (router != null && !router.isPlacedOn(rs.getString(2), source.name)) {
+                        continue;
+                    }
+                    row[0] = source.name + ":" + rs.getLong(1) + cursorSuffix;
+                    for (int i = 1; i < row.length; i++) {
+                        row[i] = value(rs, i + 1);
+                    }
+                    writer.row(row);
+                }
+            } catch (IOException e) {
+                // Client went away: stop the query, otherwise closing a MySQL streaming result reads it to the end
+                statement.cancel();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Export failed on " + source.name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void prepareStreaming(Connection connection, PreparedStatement statement) throws SQLException {
+        if (!connection.getMetaData().getDatabaseProductName().contains("MySQL")) {
+            statement.setFetchSize(fetchSize);
+            return;
+        }
+        // Connector/J only streams row by row with this fetch size, any other value buffers the whole result.
+        // The server drops a stream that isn't read for net_write_timeout, so allow for slow downloads.
+        try (Statement session = connection.createStatement()) {
+            session.execute("SET SESSION net_write_timeout = 3600");
+        }
+        statement.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    private static Object value(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value == null || value instanceof String) {
+            return value;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        LocalDateTime time = rs.getObject(column, LocalDateTime.class);
+        return time != null ? time.toString() : null;
+    }
+
+    private List<Source> sources(String shortCode) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router != null) {
+            // A code lives on one shard; an owner's links can be on any of them
+            if (shortCode != null) {
+                String name = router.physicalName(router.shardOf(shortCode));
+                return List.of(new Source(name, router.dataSource(name), 0));
+            }
+            List<Source> sources = new ArrayList<>();
+            router.getDataSources().forEach((name, shard) -> sources.add(new Source(name, shard, 0)));
+            return sources;
+        }
+
+        ReplicaRoutingDataSource replicas = replicaRouting.getIfAvailable();
+        DataSource target = replicas != null ? replicas.readTarget() : dataSource;
+        return List.of(new Source(DEFAULT_SOURCE, target, 0));
+    }
+
+    private static List<Source> resumeFrom(List<Source> sources, String after, String placement) {
+        if (after == null || after.isBlank()) {
+            return sources;
+        }
+        int at = after.lastIndexOf('@');
+        String cursorPlacement = at >= 0 ? after.substring(at + 1) : null;
+        if (placement != null && cursorPlacement != null && !placement.equals(cursorPlacement)) {
+            throw new BadRequestException("Export cursor predates a shard migration, start the export again");
+        }
+        if ((placement == null) != (cursorPlacement == null)) {
+            throw new BadRequestException("Invalid export cursor: " + after);
+        }
+        after = at >= 0 ? after.substring(0, at) : after;
+        int separator = after.lastIndexOf(':');
+        String name = separator > 0 ? after.substring(0, separator) : "";
+        long afterId;
+        try {
+            afterId = Long.parseLong(after.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid export cursor: " + after);
+        }
+
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i).name.equals(name)) {
+                List<Source> remaining = new ArrayList<>(sources.subList(i, sources.size()));
+                Source first = remaining.get(0);
+                remaining.set(0, new Source(first.name, first.dataSource, afterId));
+                return remaining;
+            }
+        }
+        throw new BadRequestException("Invalid export cursor: " + after);
+    }
+
+    private record Source(String name, DataSource dataSource, long afterId) {
+    }
+}
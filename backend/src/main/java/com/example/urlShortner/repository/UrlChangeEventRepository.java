@@ -0,0 +1,27 @@
+package com.example.urlShortner.repository;
+
+import com.example.urlShortner.entity.UrlChangeEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface UrlChangeEventRepository extends JpaRepository<UrlChangeEvent, Long> {
+    List<UrlChangeEvent> findByPublishedAtIsNullOrderByIdAsc(Pageable page);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UrlChangeEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UrlChangeEvent e WHERE e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
@@ -1,7 +1,19 @@
 package com.example.urlShortner.repository;
 
 import com.example.urlShortner.entity.UrlClick;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
 
-public interface UrlClickRepository extends JpaRepository<UrlClick, Long> {
+import java.time.LocalDateTime;
+
+public interface UrlClickRepository extends ListCrudRepository<UrlClick, Long> {
+
+    // Keyed by short code so a redirect served from the cache never has to read the link
+    @Modifying
+    @Query(value = "INSERT INTO url_clicks (url_id, clicked_at, ip_address, user_agent, referrer) "
+            + "SELECT id, :at, :ipAddress, :userAgent, :referrer FROM urls WHERE short_code = :shortCode", nativeQuery = true)
+    int recordClick(@Param("shortCode") String shortCode, @Param("at") LocalDateTime at, @Param("ipAddress") String ipAddress,
+                    @Param("userAgent") String userAgent, @Param("referrer") String referrer);
 }
@@ -1,11 +1,25 @@
 package com.example.urlShortner.repository;
 
 import com.example.urlShortner.entity.Url;
-import org.springframework.data.jpa.repository.JpaRepository;
-
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.ListPagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
-public interface UrlRepository extends JpaRepository<Url, Long> {
+// Not a JpaRepository: the embedded profile implements this too, so it only exposes what both can back
+public interface UrlRepository extends ListCrudRepository<Url, Long>, ListPagingAndSortingRepository<Url, Long> {
     Optional<Url> findByShortCode(String shortCode);
     boolean existsByShortCode(String shortCode);
-}
\ No newline at end of file
+    List<Url> findByOwnerOrderByCreatedAtDesc(String owner);
+    List<Url> findByExpiryDateBefore(LocalDateTime time);
+    <S extends Url> S saveAndFlush(S entity);
+
+    // Counts a redirect without loading the link; updatedAt moves too so a shard migration's catch-up copies it
+    @Modifying
+    @Query("UPDATE Url u SET u.clickCount = u.clickCount + 1, u.lastAccessedAt = :at, u.updatedAt = :at WHERE u.shortCode = :shortCode")
+    int recordAccess(@Param("shortCode") String shortCode, @Param("at") LocalDateTime at);
+}
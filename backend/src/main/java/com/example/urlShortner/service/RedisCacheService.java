@@ -0,0 +1,44 @@
+package com.example.urlShortner.service;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Profile("!embedded")
+@RequiredArgsConstructor
+public class RedisCacheService implements CacheService {
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private static final String URL_KEY_PREFIX = "short:";  // short:abc123 -> https://example.com
+
+    @Override
+    public void saveUrl(String shortCode, String originalUrl, long ttlInMinutes) {
+        redisTemplate.opsForValue().set(URL_KEY_PREFIX + shortCode, originalUrl, ttlInMinutes, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public String getUrl(String shortCode) {
+        return redisTemplate.opsForValue().get(URL_KEY_PREFIX + shortCode);
+    }
+
+    /** How much longer Redis keeps the cached URL, in millis; 0 if it's gone. */
+    public long getTtlMillis(String shortCode) {
+        Long ttl = redisTemplate.getExpire(URL_KEY_PREFIX + shortCode, TimeUnit.MILLISECONDS);
+        if (ttl == null || ttl == -2) {
+            return 0;
+        }
+        return ttl == -1 ? Long.MAX_VALUE : ttl;
+    }
+
+    @Override
+    public void deleteUrl(String shortCode) {
+        redisTemplate.delete(URL_KEY_PREFIX + shortCode);
+    }
+}
+
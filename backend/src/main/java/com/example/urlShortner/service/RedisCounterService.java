@@ -0,0 +1,32 @@
+package com.example.urlShortner.service;
+
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+@Profile("!embedded")
+@RequiredArgsConstructor
+public class RedisCounterService implements CounterService {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private static final String COUNTER_KEY_PREFIX = "cnt:"; // cnt:abc123 -> 45
+
+    @Override
+    public void incrementCounter(String shortCode) {
+        redisTemplate.opsForValue().increment(COUNTER_KEY_PREFIX + shortCode);
+    }
+
+    @Override
+    public long getCounter(String shortCode) {
+        String value = redisTemplate.opsForValue().get(COUNTER_KEY_PREFIX + shortCode);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    @Override
+    public void resetCounter(String shortCode) {
+        redisTemplate.delete(COUNTER_KEY_PREFIX + shortCode);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.urlShortner.service;
+
+import com.example.urlShortner.cache.ShortCodeIndex;
+import com.example.urlShortner.events.UrlChange;
+import com.example.urlShortner.events.UrlChangeListener;
+import com.example.urlShortner.util.Base62;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps recently resolved links in an off-heap {@link ShortCodeIndex} in front of Redis.
+ * Changes made through any instance evict the local copy when they come in over the url-changes
+ * stream; app.cache.local.ttl-minutes still bounds staleness if the events pipeline is switched off.
+ */
+@Service
+@Primary
+@Profile("!embedded")
+@ConditionalOnProperty(name = "app.cache.local.enabled", havingValue = "true", matchIfMissing = true)
+public class TieredCacheService implements CacheService, UrlChangeListener, MeterBinder {
+
+    private final RedisCacheService redisCacheService;
+    private final ShortCodeIndex localIndex;
+    private final long localTtlMillis;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TieredCacheService(RedisCacheService redisCacheService,
+                              @Value("${app.cache.local.initial-capacity:65536}") int initialCapacity,
+                              @Value("${app.cache.local.max-arena-mb:256}") int maxArenaMb,
+                              @Value("${app.cache.local.ttl-minutes:10}") long ttlMinutes) {
+        this.redisCacheService = redisCacheService;
+        int chunkMb = Math.max(1, Math.min(16, maxArenaMb / 8));
+        this.localIndex = new ShortCodeIndex(initialCapacity, chunkMb << 20, Math.max(2, maxArenaMb / chunkMb));
+        this.localTtlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    @Override
+    public void saveUrl(String shortCode, String originalUrl, long ttlInMinutes) {
+        redisCacheService.saveUrl(shortCode, originalUrl, ttlInMinutes);
+        long id = Base62.decodeStrict(shortCode);
+        if (id > 0) {
+            long ttlMillis = Math.min(localTtlMillis, TimeUnit.MINUTES.toMillis(ttlInMinutes));
+            localIndex.put(id, originalUrl, System.currentTimeMillis() + ttlMillis);
+        }
+    }
+
+    @Override
+    public String getUrl(String shortCode) {
+        long id = Base62.decodeStrict(shortCode);
+        if (id <= 0) {
+            return redisCacheService.getUrl(shortCode);
+        }
+        String url = localIndex.get(id);
+        if (url != null) {
+            hits.increment();
+            return url;
+        }
+        misses.increment();
+        url = redisCacheService.getUrl(shortCode);
+        if (url != null) {
+            // Redis entries end no later than their link, so a local copy mustn't outlive the Redis one
+            long ttlMillis = Math.min(localTtlMillis, redisCacheService.getTtlMillis(shortCode));
+            if (ttlMillis > 0) {
+                localIndex.put(id, url, System.currentTimeMillis() + ttlMillis);
+            }
+        }
+        return url;
+    }
+
+    @Override
+    public void deleteUrl(String shortCode) {
+        redisCacheService.deleteUrl(shortCode);
+        evictLocal(shortCode);
+    }
+
+    @Override
+    public void onUrlChanged(UrlChange change) {
+        // The next read goes to Redis/DB
+        evictLocal(change.shortCode());
+    }
+
+    @Override
+    public void onReset() {
+        localIndex.clear();
+    }
+
+    private void evictLocal(String shortCode) {
+        long id = Base62.decodeStrict(shortCode);
+        if (id > 0) {
+            localIndex.remove(id);
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("cache.local.size", localIndex, ShortCodeIndex::offHeapBytes)
+                .description("Off-heap memory used by the local short code index")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cache.local.slots", localIndex, ShortCodeIndex::slotsUsed)
+                .description("Occupied slots in the local short code index")
+                .register(registry);
+        FunctionCounter.builder("cache.local.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.local.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
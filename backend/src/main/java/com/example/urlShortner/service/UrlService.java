@@ -1,26 +1,44 @@
 package com.example.urlShortner.service;
 
+import com.example.urlShortner.config.ReplicaRoutingDataSource;
 import com.example.urlShortner.dto.AnalyticsResponse;
 import com.example.urlShortner.dto.UrlResponseDTO;
 import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.entity.UrlChangeEvent;
+import com.example.urlShortner.events.UrlChangeOutbox;
+import com.example.urlShortner.repository.UrlClickRepository;
 import com.example.urlShortner.repository.UrlRepository;
+import com.example.urlShortner.sharding.ShardRouter;
 import com.example.urlShortner.util.Base62;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class UrlService {
 
     private final UrlRepository urlRepository;
+    private final UrlClickRepository urlClickRepository;
     private final CacheService cacheService;
     private final CounterService counterService;
+    private final ObjectProvider<ShardRouter> shardRouter; // only present with app.sharding.enabled
+    private final ObjectProvider<UrlChangeOutbox> changeOutbox; // absent in the embedded profile or with app.events.enabled=false
+    private final ObjectProvider<TransactionTemplate> transactionTemplate; // no transaction manager in the embedded profile
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting; // only present with app.datasource.routing.enabled
 
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
@@ -50,61 +68,136 @@ public class UrlService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        // insert row (shortCode = null for now)
-        url = urlRepository.saveAndFlush(url);
-
-        // Step 2: Generate shortCode using Base62 + ID
-        String shortCode = Base62.encode(url.getId());
-        url.setShortCode(shortCode);
+        ShardRouter router = shardRouter.getIfAvailable();
+        String shortCode;
+        if (router != null) {
+            // Sharded: the code comes from a shard-local id and routes this transaction, so one insert is enough
+            shortCode = router.assignNewShortCode();
+            url.setShortCode(shortCode);
+            url = urlRepository.save(url);
+        } else {
+            // insert row (shortCode = null for now)
+            url = urlRepository.saveAndFlush(url);
+
+            // Step 2: Generate shortCode using Base62 + ID
+            shortCode = Base62.encode(url.getId());
+            url.setShortCode(shortCode);
+
+            // Step 3: Update row with shortCode
+            url = urlRepository.save(url);
+        }
 
-        // Step 3: Update row with shortCode
-        url = urlRepository.save(url);
+        // No outbox row: a code nobody has read yet can't be cached anywhere, so there's nothing to evict
 
         // Cache it
-        cacheService.saveUrl(shortCode, originalUrl, CACHE_TTL_MINUTES);
+        cache(url);
 
         return url;
     }
     @Transactional(readOnly = true)
     public Optional<Url> getUrlEntity(String shortCode) {
-        return urlRepository.findByShortCode(shortCode);
+        return findByShortCode(shortCode);
     }
 
-
-    @Transactional(readOnly = true)
+    // Not @Transactional: a cache hit shouldn't open a transaction (or take a connection)
     public Optional<String> getOriginalUrl(String shortCode) {
-        // 1. Check cache
+        // 1. Check cache - entries never outlive their link (see cache()), so a hit is still valid
         String cachedUrl = cacheService.getUrl(shortCode);
         if (cachedUrl != null) {
-            // ⚠️ Double-check DB to ensure it's still valid (not expired)
-            return urlRepository.findByShortCode(shortCode)
-                    .filter(url -> url.getExpiryDate() == null || url.getExpiryDate().isAfter(LocalDateTime.now()))
-                    .map(url -> {
-                        counterService.incrementCounter(shortCode);
-                        return cachedUrl;
-                    });
+            return Optional.of(cachedUrl);
         }
 
         // 2. Fallback DB
-        return urlRepository.findByShortCode(shortCode)
+        return inReadOnlyTransaction(() -> findByShortCode(shortCode))
                 .filter(url -> url.getExpiryDate() == null || url.getExpiryDate().isAfter(LocalDateTime.now()))
                 .map(url -> {
-                    cacheService.saveUrl(shortCode, url.getOriginalUrl(), CACHE_TTL_MINUTES);
-                    counterService.incrementCounter(shortCode);
+                    cache(url);
                     return url.getOriginalUrl();
                 });
     }
 
-    @Scheduled(fixedRate = 3600000) // every 1 hour
     @Transactional
-    public void deleteExpiredUrls() {
+    public void recordClick(String shortCode, String ipAddress, String userAgent, String referrer) {
         LocalDateTime now = LocalDateTime.now();
-        urlRepository.findAll().stream()
-                .filter(url -> url.getExpiryDate() != null && url.getExpiryDate().isBefore(now))
-                .forEach(url -> {
-                    cacheService.deleteUrl(url.getShortCode());
-                    urlRepository.delete(url);
-                });
+        urlClickRepository.recordClick(shortCode, now, ipAddress, userAgent, referrer);
+        urlRepository.recordAccess(shortCode, now);
+    }
+
+    private void cache(Url url) {
+        long ttlMinutes = CACHE_TTL_MINUTES;
+        if (url.getExpiryDate() != null) {
+            // Rounded down, so the entry is gone before the link expires
+            ttlMinutes = Math.min(ttlMinutes, Duration.between(LocalDateTime.now(), url.getExpiryDate()).toMinutes());
+        }
+        if (ttlMinutes > 0) {
+            cacheService.saveUrl(url.getShortCode(), url.getOriginalUrl(), ttlMinutes);
+        }
+    }
+
+    private Optional<Url> findByShortCode(String shortCode) {
+        Optional<Url> url = urlRepository.findByShortCode(shortCode);
+        if (url.isPresent() || replicaRouting.getIfAvailable() == null
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return url;
+        }
+
+        // Replicas can trail by up to max-lag-seconds, so a link created moments ago may not be there yet.
+        // Ask the primary in a new (read-write, so primary-routed) transaction before reporting a miss.
+        TransactionTemplate onPrimary = new TransactionTemplate(transactionTemplate.getObject().getTransactionManager());
+        onPrimary.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return onPrimary.execute(status -> urlRepository.findByShortCode(shortCode));
+    }
+
+    // Not @Transactional: with sharding each shard is purged in its own transaction
+    @Scheduled(fixedRate = 3600000) // every 1 hour
+    public void deleteExpiredUrls() {
+        onEveryShard(() -> inTransaction(() -> {
+            List<Url> expired = urlRepository.findByExpiryDateBefore(LocalDateTime.now());
+            expired.forEach(url -> cacheService.deleteUrl(url.getShortCode()));
+            changeOutbox.ifAvailable(outbox -> expired.forEach(url -> outbox.record(UrlChangeEvent.Type.DELETED, url)));
+            urlRepository.deleteAll(expired);
+        }));
+    }
+
+    public List<UrlResponseDTO> getUrlsByOwner(String owner) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return urlRepository.findByOwnerOrderByCreatedAtDesc(owner).stream().map(this::toDto).toList();
+        }
+
+        // Owners aren't part of the shard key, so ask every shard and merge
+        return router.scatterGather(() -> urlRepository.findByOwnerOrderByCreatedAtDesc(owner), Url::getShortCode).stream()
+                .sorted(Comparator.comparing(Url::getCreatedAt).reversed())
+                .map(this::toDto)
+                .toList();
+    }
+
+    private void inTransaction(Runnable work) {
+        TransactionTemplate template = transactionTemplate.getIfAvailable();
+        if (template == null) {
+            work.run();
+        } else {
+            template.executeWithoutResult(status -> work.run());
+        }
+    }
+
+    private <T> T inReadOnlyTransaction(Supplier<T> work) {
+        TransactionTemplate template = transactionTemplate.getIfAvailable();
+        if (template == null) {
+            return work.get();
+        }
+        TransactionTemplate readOnly = new TransactionTemplate(template.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> work.get());
+    }
+
+    private void onEveryShard(Runnable work) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            work.run();
+        } else {
+            router.forEachShard(work);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -138,7 +231,11 @@ public class UrlService {
 
     @Transactional
     public Url saveUrl(Url url) {
-        return urlRepository.save(url);
+        Url saved = urlRepository.save(url);
+        // The cached entry may carry the old target or outlive a shortened expiry
+        cacheService.deleteUrl(saved.getShortCode());
+        changeOutbox.ifAvailable(outbox -> outbox.record(UrlChangeEvent.Type.UPDATED, saved));
+        return saved;
     }
 
 }
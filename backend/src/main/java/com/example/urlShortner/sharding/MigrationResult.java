@@ -0,0 +1,16 @@
+package com.example.urlShortner.sharding;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MigrationResult {
+    private int logicalShard;
+    private String source;
+    private String target;
+    private long urlsCopied;
+    private long clicksCopied;
+    private long urlsDeletedFromSource;
+    private long durationMs;
+}
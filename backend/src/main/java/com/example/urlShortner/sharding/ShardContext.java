@@ -0,0 +1,52 @@
+package com.example.urlShortner.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the physical shard the current thread talks to. Read by {@link ShardRoutingDataSource}
+ * when a connection is actually opened.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static void set(String physicalShard) {
+        CURRENT.set(physicalShard);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static <T> T call(String physicalShard, Supplier<T> work) {
+        String previous = CURRENT.get();
+        CURRENT.set(physicalShard);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static void run(String physicalShard, Runnable work) {
+        call(physicalShard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.urlShortner.sharding;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets a migration briefly stop traffic to one logical shard. Requests {@link #enter()} and
+ * {@link #exit()} around their work (not necessarily on the same thread); {@link #freeze(long)}
+ * blocks new entries and waits for in-flight ones to drain. {@link #hold(boolean)} blocks new
+ * entries without waiting - that's how a freeze read from the catalog reaches the other instances.
+ */
+class ShardGate {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Object monitor = new Object();
+    private volatile boolean frozen;
+    private volatile boolean held;
+
+    void enter() {
+        while (true) {
+            if (frozen || held) {
+                awaitThaw();
+            }
+            inFlight.incrementAndGet();
+            if (!frozen && !held) {
+                return;
+            }
+            // Lost the race with freeze() - back off and wait like everyone else
+            exit();
+        }
+    }
+
+    void exit() {
+        inFlight.decrementAndGet();
+        if (frozen) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    boolean freeze(long timeoutMs) {
+        frozen = true;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (monitor) {
+            while (inFlight.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    thaw();
+                    return false;
+                }
+                try {
+                    monitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    thaw();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    void thaw() {
+        frozen = false;
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+
+    void hold(boolean value) {
+        held = value;
+        if (!value) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private void awaitThaw() {
+        synchronized (monitor) {
+            while (frozen || held) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a shard migration", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.urlShortner.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out ids that are unique within a logical shard. Ids are reserved in blocks from the
+ * shard's row in {@code shard_sequences}, so most allocations never leave the JVM. The row moves
+ * with the shard during a migration, which keeps ids unique after resharding.
+ */
+class ShardIdAllocator {
+
+    private final ShardRouter router;
+    private final int blockSize;
+    private final Map<Integer, Block> blocks = new ConcurrentHashMap<>();
+
+    ShardIdAllocator(ShardRouter router, int blockSize) {
+        this.router = router;
+        this.blockSize = blockSize;
+    }
+
+    long nextId(int logicalShard) {
+        Block block = blocks.computeIfAbsent(logicalShard, shard -> new Block());
+        synchronized (block) {
+            if (block.next >= block.end) {
+                block.next = reserve(logicalShard);
+                block.end = block.next + blockSize;
+            }
+            return block.next++;
+        }
+    }
+
+    private long reserve(int logicalShard) {
+        DataSource dataSource = router.dataSource(router.physicalName(logicalShard));
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        Long start = new TransactionTemplate(new DataSourceTransactionManager(dataSource)).execute(status -> {
+            List<Long> current = jdbc.queryForList(
+                    "SELECT next_val FROM shard_sequences WHERE shard_id = ? FOR UPDATE", Long.class, logicalShard);
+            if (current.isEmpty()) {
+                throw new IllegalStateException("No sequence row for logical shard " + logicalShard);
+            }
+            jdbc.update("UPDATE shard_sequences SET next_val = ? WHERE shard_id = ?",
+                    current.get(0) + blockSize, logicalShard);
+            return current.get(0);
+        });
+        return start;
+    }
+
+    private static class Block {
+        private long next;
+        private long end;
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.urlShortner.sharding;
+
+import com.example.urlShortner.exception.BadRequestException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves one logical shard to another physical datasource while the service keeps running.
+ *
+ * <ol>
+ *   <li>New links stop being assigned to the shard; existing ones keep working on the source.</li>
+ *   <li>Links and clicks are copied in keyset batches.</li>
+ *   <li>The shard is frozen (in-flight requests drain, new ones wait) and the migration waits
+ *       until every other instance has read the freeze. Rows created or changed since the bulk
+ *       copy are copied again, expired copies are dropped, the id sequence is moved and the
+ *       placement flips.</li>
+ *   <li>One refresh interval later, for requests other instances let in just before the freeze,
+ *       the catch-up runs again (keeping changes already made on the target) and the source rows
+ *       are deleted.</li>
+ * </ol>
+ *
+ * The shard's state goes through {@code shard_placement}, so the other instances stop assigning
+ * codes to it and hold its requests too. If an instance doesn't refresh within three
+ * {@code app.sharding.placement-refresh-ms} intervals the migration fails. If anything fails
+ * before the placement flips, the copies are deleted from the target again and the shard stays
+ * where it was.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ShardMigrator {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // Other instances stamp updated_at with their own clock; re-copying a few extra rows is harmless
+    private static final long CLOCK_SKEW_MS = 60_000;
+
+    private static final String URL_COLUMNS =
+            "id, short_code, original_url, created_at, expiry_date, click_count, last_accessed_at, owner, updated_at";
+
+    private final ShardRouter router;
+    private final long drainTimeoutMs;
+    private final long placementRefreshMs;
+
+    public synchronized MigrationResult migrate(int logicalShard, String target) {
+        if (logicalShard < 0 || logicalShard >= router.getLogicalShards()) {
+            throw new BadRequestException("Unknown logical shard: " + logicalShard);
+        }
+        if (!router.getDataSources().containsKey(target)) {
+            throw new BadRequestException("Unknown physical shard: " + target);
+        }
+        String source = router.physicalName(logicalShard);
+        if (source.equals(target)) {
+            throw new BadRequestException("Logical shard " + logicalShard + " already lives on " + target);
+        }
+
+        long started = System.currentTimeMillis();
+        JdbcTemplate from = new JdbcTemplate(router.dataSource(source));
+        JdbcTemplate to = new JdbcTemplate(router.dataSource(target));
+
+        // Every copy gets an id above this on the target, so a failed migration knows what to remove
+        long copiesAbove = to.queryForObject("SELECT COALESCE(MAX(id), 0) FROM urls", Long.class);
+        Watermark watermark = new Watermark();
+        long urls;
+        long clicks;
+
+        Timestamp frozenAt;
+        router.setState(logicalShard, ShardState.MIGRATING);
+        try {
+            Timestamp copyStarted = new Timestamp(System.currentTimeMillis() - CLOCK_SKEW_MS);
+
+            urls = copyUrls(from, to, logicalShard, watermark, null, false);
+            clicks = copyClicks(from, to, logicalShard, watermark);
+            log.info("Shard {}: bulk copied {} urls and {} clicks from {} to {}", logicalShard, urls, clicks, source, target);
+
+            ShardGate gate = router.gate(logicalShard);
+            Timestamp freezeWritten = router.setState(logicalShard, ShardState.FROZEN);
+            if (!gate.freeze(drainTimeoutMs)) {
+                throw new IllegalStateException("Timed out draining requests for logical shard " + logicalShard);
+            }
+            try {
+                if (!router.awaitRefreshed(freezeWritten)) {
+                    throw new IllegalStateException("Not every instance picked up the freeze of logical shard " + logicalShard);
+                }
+                frozenAt = new Timestamp(System.currentTimeMillis() - CLOCK_SKEW_MS);
+                urls += copyUrls(from, to, logicalShard, watermark, copyStarted, false);
+                clicks += copyClicks(from, to, logicalShard, watermark);
+                long expired = deleteExpiredCopies(to, logicalShard, copiesAbove);
+                if (expired > 0) {
+                    log.info("Shard {}: dropped {} expired copies", logicalShard, expired);
+                }
+                copySequence(from, to, logicalShard);
+                router.movePlacement(logicalShard, target);
+                from.update("DELETE FROM shard_sequences WHERE shard_id = ?", logicalShard);
+            } finally {
+                gate.thaw();
+            }
+        } catch (RuntimeException e) {
+            if (!target.equals(router.physicalName(logicalShard))) {
+                discardCopies(to, logicalShard, copiesAbove, e);
+                try {
+                    router.setState(logicalShard, ShardState.ACTIVE);
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+
+        // Requests other instances let in just before they held the shard may still write to the source
+        sleep(placementRefreshMs);
+        urls += copyUrls(from, to, logicalShard, watermark, frozenAt, true);
+        clicks += copyClicks(from, to, logicalShard, watermark);
+
+        long deleted = deleteShard(from, logicalShard, 0);
+        log.info("Shard {}: moved to {}, removed {} urls from {}", logicalShard, target, deleted, source);
+
+        return new MigrationResult(logicalShard, source, target, urls, clicks, deleted,
+                System.currentTimeMillis() - started);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies the shard's links with id above the watermark. With {@code changedSince} set it also
+     * re-copies links updated (edited or clicked) after that time, for the catch-up pass. After the
+     * flip the target is live, so {@code onlyNewer} keeps changes made there since.
+     */
+    private long copyUrls(JdbcTemplate from, JdbcTemplate to, int logicalShard, Watermark watermark,
+                          Timestamp changedSince, boolean onlyNewer) {
+        long copied = 0;
+        long cursor = changedSince == null ? watermark.lastUrlId : 0;
+        long newRowsAbove = watermark.lastUrlId;
+
+        while (true) {
+            List<Map<String, Object>> rows = changedSince == null
+                    ? from.queryForList("SELECT " + URL_COLUMNS + " FROM urls WHERE id > ? ORDER BY id LIMIT ?",
+                    cursor, BATCH_SIZE)
+                    : from.queryForList("SELECT " + URL_COLUMNS + " FROM urls WHERE id > ? AND (id > ? OR updated_at >= ?)"
+                    + " ORDER BY id LIMIT ?", cursor, newRowsAbove, changedSince, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                return copied;
+            }
+
+            for (Map<String, Object> row : rows) {
+                long id = ((Number) row.get("id")).longValue();
+                cursor = id;
+                watermark.lastUrlId = Math.max(watermark.lastUrlId, id);
+
+                String shortCode = (String) row.get("short_code");
+                if (shortCode == null || router.shardOf(shortCode) != logicalShard) {
+                    continue;
+                }
+                if (upsertUrl(to, row, onlyNewer)) {
+                    copied++;
+                }
+            }
+        }
+    }
+
+    private boolean upsertUrl(JdbcTemplate to, Map<String, Object> row, boolean onlyNewer) {
+        String update = "UPDATE urls SET original_url = ?, expiry_date = ?, click_count = ?,"
+                + " last_accessed_at = ?, owner = ?, updated_at = ? WHERE short_code = ?";
+        Object[] values = {row.get("original_url"), row.get("expiry_date"), row.get("click_count"),
+                row.get("last_accessed_at"), row.get("owner"), row.get("updated_at"), row.get("short_code")};
+        int updated = onlyNewer
+                ? to.update(update + " AND (updated_at IS NULL OR updated_at < ?)", append(values, row.get("updated_at")))
+                : to.update(update, values);
+        if (updated > 0) {
+            return true;
+        }
+        if (onlyNewer && to.queryForObject("SELECT COUNT(*) FROM urls WHERE short_code = ?",
+                Integer.class, row.get("short_code")) > 0) {
+            return false;
+        }
+        to.update("INSERT INTO urls (short_code, original_url, created_at, expiry_date, click_count,"
+                        + " last_accessed_at, owner, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                row.get("short_code"), row.get("original_url"), row.get("created_at"), row.get("expiry_date"),
+                row.get("click_count"), row.get("last_accessed_at"), row.get("owner"), row.get("updated_at"));
+        return true;
+    }
+
+    private static Object[] append(Object[] values, Object value) {
+        Object[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+
+    /**
+     * Click ids only grow, so one watermark covers both the bulk copy and the catch-up pass. Stops
+     * early at a click whose link hasn't been copied yet; the catch-up pass continues from there.
+     */
+    private long copyClicks(JdbcTemplate from, JdbcTemplate to, int logicalShard, Watermark watermark) {
+        long copied = 0;
+
+        while (true) {
+            List<Map<String, Object>> rows = from.queryForList(
+                    "SELECT c.id, c.clicked_at, c.user_agent, c.referrer, c.ip_address, u.id AS url_id, u.short_code"
+                            + " FROM url_clicks c JOIN urls u ON u.id = c.url_id"
+                            + " WHERE c.id > ? ORDER BY c.id LIMIT ?", watermark.lastClickId, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                return copied;
+            }
+
+            List<Object[]> batch = new ArrayList<>();
+            boolean caughtUp = false;
+            for (Map<String, Object> row : rows) {
+                String shortCode = (String) row.get("short_code");
+                boolean onShard = shortCode != null && router.shardOf(shortCode) == logicalShard;
+                if (onShard && ((Number) row.get("url_id")).longValue() > watermark.lastUrlId) {
+                    caughtUp = true;
+                    break;
+                }
+
+                watermark.lastClickId = ((Number) row.get("id")).longValue();
+                if (onShard) {
+                    batch.add(new Object[]{row.get("clicked_at"), row.get("user_agent"), row.get("referrer"),
+                            row.get("ip_address"), shortCode});
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                to.batchUpdate("INSERT INTO url_clicks (clicked_at, user_agent, referrer, ip_address, url_id)"
+                        + " VALUES (?, ?, ?, ?, (SELECT id FROM urls WHERE short_code = ?))", batch);
+                copied += batch.size();
+            }
+            if (caughtUp) {
+                return copied;
+            }
+        }
+    }
+
+    // The source row is deleted once the placement has flipped
+    private void copySequence(JdbcTemplate from, JdbcTemplate to, int logicalShard) {
+        long sourceNext = from.queryForList("SELECT next_val FROM shard_sequences WHERE shard_id = ?",
+                Long.class, logicalShard).stream().findFirst().orElse(1L);
+        List<Long> targetNext = to.queryForList("SELECT next_val FROM shard_sequences WHERE shard_id = ?",
+                Long.class, logicalShard);
+
+        if (targetNext.isEmpty()) {
+            to.update("INSERT INTO shard_sequences (shard_id, next_val) VALUES (?, ?)", logicalShard, sourceNext);
+        } else {
+            to.update("UPDATE shard_sequences SET next_val = ? WHERE shard_id = ?",
+                    Math.max(sourceNext, targetNext.get(0)), logicalShard);
+        }
+    }
+
+    /**
+     * Links only disappear through the expiry purge, which may have deleted source rows after they
+     * were copied. Dropping every expired copy keeps those from coming back on the target.
+     */
+    private long deleteExpiredCopies(JdbcTemplate to, int logicalShard, long copiesAbove) {
+        List<Object[]> ids = new ArrayList<>();
+        to.query("SELECT id, short_code FROM urls WHERE expiry_date < ? AND id > ?", rs -> {
+            if (router.shardOf(rs.getString("short_code")) == logicalShard) {
+                ids.add(new Object[]{rs.getLong("id")});
+            }
+        }, new Timestamp(System.currentTimeMillis()), copiesAbove);
+        deleteRows(to, ids);
+        return ids.size();
+    }
+
+    private void discardCopies(JdbcTemplate to, int logicalShard, long copiesAbove, RuntimeException failure) {
+        try {
+            long discarded = deleteShard(to, logicalShard, copiesAbove);
+            // The shard isn't placed on the target, so any sequence row there is this migration's copy
+            to.update("DELETE FROM shard_sequences WHERE shard_id = ?", logicalShard);
+            log.warn("Shard {}: migration failed, removed {} copied urls from the target", logicalShard, discarded);
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private long deleteShard(JdbcTemplate from, int logicalShard, long aboveId) {
+        long deleted = 0;
+        long cursor = aboveId;
+
+        while (true) {
+            List<Map<String, Object>> rows = from.queryForList(
+                    "SELECT id, short_code FROM urls WHERE id > ? ORDER BY id LIMIT ?", cursor, BATCH_SIZE);
+            if (rows.isEmpty()) {
+                return deleted;
+            }
+
+            List<Object[]> ids = new ArrayList<>();
+            for (Map<String, Object> row : rows) {
+                cursor = ((Number) row.get("id")).longValue();
+                String shortCode = (String) row.get("short_code");
+                if (shortCode != null && router.shardOf(shortCode) == logicalShard) {
+                    ids.add(new Object[]{cursor});
+                }
+            }
+
+            deleteRows(from, ids);
+            deleted += ids.size();
+        }
+    }
+
+    private static void deleteRows(JdbcTemplate jdbc, List<Object[]> ids) {
+        if (!ids.isEmpty()) {
+            jdbc.batchUpdate("DELETE FROM url_clicks WHERE url_id = ?", ids);
+            jdbc.batchUpdate("DELETE FROM urls WHERE id = ?", ids);
+        }
+    }
+
+    private static class Watermark {
+        private long lastUrlId;
+        private long lastClickId;
+    }
+}
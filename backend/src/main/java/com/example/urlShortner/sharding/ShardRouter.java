@@ -0,0 +1,344 @@
+package com.example.urlShortner.sharding;
+
+import com.example.urlShortner.util.Base62;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Maps logical shards to physical datasources.
+ *
+ * Short codes are {@code Base62(localId * logicalShards + logicalShard)}, so the shard of any link
+ * is computed from its code - no directory lookup. Logical shards are spread round robin over the
+ * physical datasources; moves done by {@link ShardMigrator} are stored in {@code shard_placement}
+ * on the first (catalog) datasource and override that default. The same rows carry each shard's
+ * {@link ShardState}, which every instance applies when it refreshes, and every instance records
+ * its last refresh in {@code shard_instances}.
+ */
+public class ShardRouter implements AutoCloseable {
+
+    @Getter
+    private final int logicalShards;
+    @Getter
+    private final Map<String, DataSource> dataSources;
+    @Getter
+    private final String catalogShard;
+
+    private final AtomicReferenceArray<String> placement;
+    private final AtomicIntegerArray moves;
+    private final ShardGate[] gates;
+    private final Set<Integer> migrating = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final String instanceId = UUID.randomUUID().toString();
+    private final long placementRefreshMs;
+    private final ShardIdAllocator idAllocator;
+    private final ExecutorService scatterExecutor;
+
+    public ShardRouter(int logicalShards, int idBlockSize, long placementRefreshMs, Map<String, DataSource> dataSources) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalStateException("app.sharding.datasources must list at least one datasource");
+        }
+        this.logicalShards = logicalShards;
+        this.placementRefreshMs = placementRefreshMs;
+        this.dataSources = Collections.unmodifiableMap(new LinkedHashMap<>(dataSources));
+        this.catalogShard = dataSources.keySet().iterator().next();
+
+        List<String> names = new ArrayList<>(dataSources.keySet());
+        this.placement = new AtomicReferenceArray<>(logicalShards);
+        this.moves = new AtomicIntegerArray(logicalShards);
+        this.gates = new ShardGate[logicalShards];
+        for (int shard = 0; shard < logicalShards; shard++) {
+            placement.set(shard, names.get(shard % names.size()));
+            gates[shard] = new ShardGate();
+        }
+
+        this.idAllocator = new ShardIdAllocator(this, idBlockSize);
+        this.scatterExecutor = Executors.newFixedThreadPool(dataSources.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        refreshPlacement();
+        seedSequences();
+    }
+
+    // ---------- code <-> shard ----------
+
+    public int shardOf(String shortCode) {
+        return (int) Math.floorMod(Base62.decode(shortCode), (long) logicalShards);
+    }
+
+    public String encode(long localId, int logicalShard) {
+        return Base62.encode(localId * logicalShards + logicalShard);
+    }
+
+    public String physicalName(int logicalShard) {
+        return placement.get(logicalShard);
+    }
+
+    public DataSource dataSource(String physicalName) {
+        DataSource dataSource = dataSources.get(physicalName);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown physical shard: " + physicalName);
+        }
+        return dataSource;
+    }
+
+    public Map<Integer, String> getPlacement() {
+        Map<Integer, String> snapshot = new LinkedHashMap<>();
+        for (int shard = 0; shard < logicalShards; shard++) {
+            snapshot.put(shard, placement.get(shard));
+        }
+        return snapshot;
+    }
+
+    /** Grows with every completed migration; anything keyed to a physical shard is stale once it changes. */
+    public long getPlacementVersion() {
+        long version = 0;
+        for (int shard = 0; shard < logicalShards; shard++) {
+            version += moves.get(shard);
+        }
+        return version;
+    }
+
+    public Set<Integer> getMigrating() {
+        return Set.copyOf(migrating);
+    }
+
+    // ---------- routing ----------
+
+    /**
+     * Picks a logical shard for a new link, routes the current transaction to it and returns the
+     * link's short code. The shard's gate is held until the transaction completes so a migration
+     * can't cut over while the insert is uncommitted. Must be called inside a transaction, before
+     * its first statement.
+     */
+    public String assignNewShortCode() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("assignNewShortCode() must run inside a transaction");
+        }
+        int shard = pickShardForNewLink();
+        ShardGate gate = gates[shard];
+        gate.enter();
+
+        String previous = ShardContext.current();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ShardContext.restore(previous);
+                gate.exit();
+            }
+        });
+        ShardContext.set(physicalName(shard));
+
+        return encode(idAllocator.nextId(shard), shard);
+    }
+
+    /** Used around request handling: blocks while the code's shard is being cut over. */
+    public int enter(String shortCode) {
+        int shard = shardOf(shortCode);
+        gates[shard].enter();
+        return shard;
+    }
+
+    public void exit(int logicalShard) {
+        gates[logicalShard].exit();
+    }
+
+    public void forEachShard(Runnable work) {
+        for (String physicalName : dataSources.keySet()) {
+            ShardContext.run(physicalName, work);
+        }
+    }
+
+    /** True if the link's logical shard is currently placed on {@code physicalName}. */
+    public boolean isPlacedOn(String shortCode, String physicalName) {
+        return shortCode != null && physicalName.equals(physicalName(shardOf(shortCode)));
+    }
+
+    /**
+     * Runs the query on every physical shard in parallel and concatenates the results. Rows of a
+     * logical shard placed elsewhere are dropped: those are a migration's copies (or source rows it
+     * hasn't deleted yet), not more links.
+     */
+    public <T> List<T> scatterGather(Supplier<List<T>> query, Function<T, String> shortCode) {
+        Map<Integer, String> placed = getPlacement();
+        List<CompletableFuture<List<T>>> futures = dataSources.keySet().stream()
+                .map(physicalName -> CompletableFuture.supplyAsync(
+                        () -> ShardContext.call(physicalName, query).stream()
+                                .filter(row -> {
+                                    String code = shortCode.apply(row);
+                                    return code != null && physicalName.equals(placed.get(shardOf(code)));
+                                })
+                                .toList(), scatterExecutor))
+                .toList();
+
+        List<T> results = new ArrayList<>();
+        futures.forEach(future -> results.addAll(future.join()));
+        return results;
+    }
+
+    private int pickShardForNewLink() {
+        for (int attempt = 0; attempt < logicalShards; attempt++) {
+            int shard = Math.floorMod(nextShard.getAndIncrement(), logicalShards);
+            if (!migrating.contains(shard)) {
+                return shard;
+            }
+        }
+        throw new IllegalStateException("Every logical shard is being migrated");
+    }
+
+    // ---------- placement (used by ShardMigrator) ----------
+
+    ShardGate gate(int logicalShard) {
+        return gates[logicalShard];
+    }
+
+    /**
+     * Stores the shard's state in the catalog and applies it here. Returns the catalog's clock
+     * right after the write, for {@link #awaitRefreshed(Timestamp)}.
+     */
+    synchronized Timestamp setState(int logicalShard, ShardState state) {
+        JdbcTemplate catalog = new JdbcTemplate(dataSource(catalogShard));
+        int updated = catalog.update("UPDATE shard_placement SET state = ? WHERE logical_shard = ?",
+                state.name(), logicalShard);
+        if (updated == 0) {
+            catalog.update("INSERT INTO shard_placement (logical_shard, physical_name, state) VALUES (?, ?, ?)",
+                    logicalShard, physicalName(logicalShard), state.name());
+        }
+        apply(logicalShard, physicalName(logicalShard), moves.get(logicalShard), state);
+        return catalogTime(catalog);
+    }
+
+    /** Moves the shard to {@code physicalName} and makes it {@link ShardState#ACTIVE} there. */
+    synchronized Timestamp movePlacement(int logicalShard, String physicalName) {
+        dataSource(physicalName);
+        JdbcTemplate catalog = new JdbcTemplate(dataSource(catalogShard));
+        int updated = catalog.update("UPDATE shard_placement SET physical_name = ?, moves = moves + 1, state = ?"
+                + " WHERE logical_shard = ?", physicalName, ShardState.ACTIVE.name(), logicalShard);
+        if (updated == 0) {
+            catalog.update("INSERT INTO shard_placement (logical_shard, physical_name, moves, state) VALUES (?, ?, 1, ?)",
+                    logicalShard, physicalName, ShardState.ACTIVE.name());
+        }
+        int moved = catalog.queryForObject("SELECT moves FROM shard_placement WHERE logical_shard = ?",
+                Integer.class, logicalShard);
+        apply(logicalShard, physicalName, moved, ShardState.ACTIVE);
+        return catalogTime(catalog);
+    }
+
+    /**
+     * Waits until every other running instance has refreshed since {@code since} (catalog clock),
+     * and so applied whatever was written before it. Instances that haven't refreshed for three
+     * intervals count as stopped. Returns false if some instance didn't refresh in time.
+     */
+    boolean awaitRefreshed(Timestamp since) {
+        JdbcTemplate catalog = new JdbcTemplate(dataSource(catalogShard));
+        Timestamp stoppedBefore = new Timestamp(since.getTime() - 3 * placementRefreshMs);
+        long deadline = System.currentTimeMillis() + 3 * placementRefreshMs;
+        while (catalog.queryForObject("SELECT COUNT(*) FROM shard_instances WHERE instance_id <> ?"
+                        + " AND refreshed_at > ? AND refreshed_at <= ?",
+                Integer.class, instanceId, stoppedBefore, since) > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(Math.min(100, placementRefreshMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Picks up moves and migration state written by a migration running on any instance
+    @Scheduled(fixedDelayString = "${app.sharding.placement-refresh-ms:5000}")
+    public synchronized void refreshPlacement() {
+        JdbcTemplate catalog = new JdbcTemplate(dataSource(catalogShard));
+        // Taken before the read: whatever was written before this time is applied once it's recorded
+        Timestamp readAt = catalogTime(catalog);
+        catalog.query("SELECT logical_shard, physical_name, moves, state FROM shard_placement", rs -> {
+            int shard = rs.getInt("logical_shard");
+            String physicalName = rs.getString("physical_name");
+            if (shard < logicalShards && dataSources.containsKey(physicalName)) {
+                apply(shard, physicalName, rs.getInt("moves"), ShardState.valueOf(rs.getString("state")));
+            }
+        });
+
+        if (catalog.update("UPDATE shard_instances SET refreshed_at = ? WHERE instance_id = ?", readAt, instanceId) == 0) {
+            catalog.update("INSERT INTO shard_instances (instance_id, refreshed_at) VALUES (?, ?)", instanceId, readAt);
+        }
+    }
+
+    private void apply(int logicalShard, String physicalName, int moved, ShardState state) {
+        placement.set(logicalShard, physicalName);
+        moves.set(logicalShard, moved);
+        if (state == ShardState.ACTIVE) {
+            migrating.remove(logicalShard);
+        } else {
+            migrating.add(logicalShard);
+        }
+        gates[logicalShard].hold(state == ShardState.FROZEN);
+    }
+
+    private static Timestamp catalogTime(JdbcTemplate catalog) {
+        return catalog.queryForObject("SELECT CURRENT_TIMESTAMP(6)", Timestamp.class);
+    }
+
+    private void seedSequences() {
+        for (String physicalName : dataSources.keySet()) {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource(physicalName));
+            Set<Integer> existing = new HashSet<>(jdbc.queryForList("SELECT shard_id FROM shard_sequences", Integer.class));
+
+            for (int shard = 0; shard < logicalShards; shard++) {
+                if (physicalName.equals(placement.get(shard)) && !existing.contains(shard)) {
+                    try {
+                        jdbc.update("INSERT INTO shard_sequences (shard_id, next_val) VALUES (?, 1)", shard);
+                    } catch (DataIntegrityViolationException ignored) {
+                        // another instance seeded it first
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            new JdbcTemplate(dataSource(catalogShard)).update("DELETE FROM shard_instances WHERE instance_id = ?", instanceId);
+        } catch (RuntimeException ignored) {
+            // counts as stopped three refresh intervals from now anyway
+        }
+        scatterExecutor.shutdownNow();
+        dataSources.values().forEach(dataSource -> {
+            if (dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        });
+    }
+}
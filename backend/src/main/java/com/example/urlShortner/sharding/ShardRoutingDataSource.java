@@ -0,0 +1,25 @@
+package com.example.urlShortner.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Picks the physical shard from {@link ShardContext}. Without a context (startup, schema
+ * checks) connections go to the first configured shard.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(ShardRouter router) {
+        Map<Object, Object> targets = new HashMap<>(router.getDataSources());
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(router.dataSource(router.getCatalogShard()));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
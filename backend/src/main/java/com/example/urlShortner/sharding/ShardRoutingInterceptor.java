@@ -0,0 +1,58 @@
+package com.example.urlShortner.sharding;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Routes any request with a {shortCode} path variable to the shard encoded in the code, so
+ * controllers and repositories need no shard awareness.
+ */
+@RequiredArgsConstructor
+public class ShardRoutingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String SHARD_ATTRIBUTE = ShardRoutingInterceptor.class.getName() + ".shard";
+
+    private final ShardRouter router;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String shortCode = variables == null ? null : variables.get("shortCode");
+        if (shortCode == null || request.getAttribute(SHARD_ATTRIBUTE) != null) {
+            return true;
+        }
+
+        int shard = router.enter(shortCode);
+        request.setAttribute(SHARD_ATTRIBUTE, shard);
+        ShardContext.set(router.physicalName(shard));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(@NonNull HttpServletRequest request,
+                                               @NonNull HttpServletResponse response,
+                                               @NonNull Object handler) {
+        // The request thread goes back to the pool; the gate stays held until afterCompletion
+        ShardContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        Object shard = request.getAttribute(SHARD_ATTRIBUTE);
+        if (shard != null) {
+            ShardContext.clear();
+            request.removeAttribute(SHARD_ATTRIBUTE);
+            router.exit((Integer) shard);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.urlShortner.sharding;
+
+/** Migration state of a logical shard, kept in {@code shard_placement} so every instance sees it. */
+enum ShardState {
+
+    ACTIVE,
+
+    // Being copied: no new links are assigned to it, existing ones work as usual
+    MIGRATING,
+
+    // Being cut over: requests to it wait until it's ACTIVE again, on its new database
+    FROZEN
+}
@@ -0,0 +1,115 @@
+package com.example.urlShortner.sharding;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.lang.NonNull;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Horizontal sharding of urls/url_clicks. Enabled with {@code app.sharding.enabled=true}.
+ * Each physical datasource gets the schema from {@code sharding/schema.sql}; run with
+ * {@code spring.jpa.hibernate.ddl-auto=none} or {@code validate}, since Hibernate only sees the
+ * first shard.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    // Every shard pool uses the spring.datasource.hikari.* sizing and timeouts
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig shardPoolConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties,
+                                   HikariConfig shardPoolConfig,
+                                   ObjectProvider<MeterRegistry> meterRegistry,
+                                   @Value("${app.datasource.routing.enabled:false}") boolean replicaRouting) {
+        if (replicaRouting) {
+            throw new IllegalStateException("app.sharding and app.datasource.routing can't be enabled together");
+        }
+
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (ShardingProperties.Physical physical : properties.getDatasources()) {
+            HikariConfig config = new HikariConfig();
+            shardPoolConfig.copyStateTo(config);
+            config.setPoolName("shard-" + physical.getName());
+            config.setJdbcUrl(physical.getUrl());
+            if (StringUtils.hasText(physical.getUsername())) {
+                config.setUsername(physical.getUsername());
+                config.setPassword(physical.getPassword());
+            }
+
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null) {
+                config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+
+            HikariDataSource dataSource = new HikariDataSource(config);
+            new ResourceDatabasePopulator(new ClassPathResource("sharding/schema.sql")).execute(dataSource);
+            dataSources.put(physical.getName(), dataSource);
+        }
+
+        return new ShardRouter(properties.getLogicalShards(), properties.getIdBlockSize(),
+                properties.getPlacementRefreshMs(), dataSources);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRouter shardRouter) {
+        // The shard is chosen when the first statement runs, after ShardContext has been set
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shardRouter));
+    }
+
+    // Same reason as in DataSourceConfig: route each transaction on its own, not once per request
+    @Bean
+    public HibernatePropertiesCustomizer releaseShardConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public ShardMigrator shardMigrator(ShardRouter shardRouter, ShardingProperties properties) {
+        return new ShardMigrator(shardRouter, properties.getDrainTimeoutMs(), properties.getPlacementRefreshMs());
+    }
+
+    @Bean
+    public ShardsEndpoint shardsEndpoint(ShardRouter shardRouter, ShardMigrator shardMigrator) {
+        return new ShardsEndpoint(shardRouter, shardMigrator);
+    }
+
+    @Bean
+    public WebMvcConfigurer shardRoutingConfigurer(ShardRouter shardRouter) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(@NonNull InterceptorRegistry registry) {
+                registry.addInterceptor(new ShardRoutingInterceptor(shardRouter));
+            }
+        };
+    }
+}
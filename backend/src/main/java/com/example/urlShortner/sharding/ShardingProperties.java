@@ -0,0 +1,36 @@
+package com.example.urlShortner.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    // Baked into every short code - never change it once links have been created
+    private int logicalShards = 64;
+
+    // How many shard-local ids an instance reserves per round trip to shard_sequences
+    private int idBlockSize = 100;
+
+    // How long a migration waits for in-flight requests on the shard before giving up
+    private long drainTimeoutMs = 10000;
+
+    // How often every instance re-reads shard placement and migration state from the catalog
+    private long placementRefreshMs = 5000;
+
+    private List<Physical> datasources = new ArrayList<>();
+
+    @Data
+    public static class Physical {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+    }
+}
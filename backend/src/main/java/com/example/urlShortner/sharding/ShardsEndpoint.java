@@ -0,0 +1,41 @@
+package com.example.urlShortner.sharding;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resharding tool at /actuator/shards. Not exposed unless "shards" is added to
+ * management.endpoints.web.exposure.include.
+ *
+ * <pre>
+ * GET  /actuator/shards                                       current placement
+ * POST /actuator/shards {"logicalShard": 3, "target": "db2"}  move a logical shard
+ * </pre>
+ */
+@Endpoint(id = "shards")
+@RequiredArgsConstructor
+public class ShardsEndpoint {
+
+    private final ShardRouter router;
+    private final ShardMigrator migrator;
+
+    @ReadOperation
+    public Map<String, Object> placement() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("logicalShards", router.getLogicalShards());
+        body.put("physicalShards", router.getDataSources().keySet());
+        body.put("migrating", router.getMigrating());
+        body.put("placement", router.getPlacement());
+        return body;
+    }
+
+    @WriteOperation
+    public MigrationResult migrate(int logicalShard, String target) {
+        return migrator.migrate(logicalShard, target);
+    }
+}
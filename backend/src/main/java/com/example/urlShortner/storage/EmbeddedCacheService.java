@@ -0,0 +1,33 @@
+package com.example.urlShortner.storage;
+
+import com.example.urlShortner.service.CacheService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+/**
+ * The link store already answers from memory-mapped pages, so a separate cache would only hold a
+ * second copy. Reads go to the store; writes and evictions are no-ops.
+ */
+@Service
+@Profile("embedded")
+@RequiredArgsConstructor
+public class EmbeddedCacheService implements CacheService {
+
+    private final LinkStore linkStore;
+
+    @Override
+    public void saveUrl(String shortCode, String originalUrl, long ttlInMinutes) {
+    }
+
+    @Override
+    public String getUrl(String shortCode) {
+        return EmbeddedUrlRepository.idOf(shortCode)
+                .flatMap(linkStore::getOriginalUrl)
+                .orElse(null);
+    }
+
+    @Override
+    public void deleteUrl(String shortCode) {
+    }
+}
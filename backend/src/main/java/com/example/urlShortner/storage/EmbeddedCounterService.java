@@ -0,0 +1,36 @@
+package com.example.urlShortner.storage;
+
+import com.example.urlShortner.service.CounterService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pending click counters kept in memory until UrlService.updateAnalytics folds them into the link.
+ * Like the Redis counters they are only a buffer; unsynced counts are lost on restart.
+ */
+@Service
+@Profile("embedded")
+public class EmbeddedCounterService implements CounterService {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void incrementCounter(String shortCode) {
+        counters.computeIfAbsent(shortCode, code -> new LongAdder()).increment();
+    }
+
+    @Override
+    public long getCounter(String shortCode) {
+        LongAdder counter = counters.get(shortCode);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    @Override
+    public void resetCounter(String shortCode) {
+        counters.remove(shortCode);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.urlShortner.storage;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.ListPagingAndSortingRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Base for the embedded repositories. The repository contracts stop at CRUD plus sorting and
+ * paging, and all of it maps onto the few primitives subclasses implement. Sorting and paging
+ * load everything first; the stores here are small or scanned anyway.
+ */
+abstract class EmbeddedRepositorySupport<T, ID> implements ListCrudRepository<T, ID>, ListPagingAndSortingRepository<T, ID> {
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    @Override
+    public boolean existsById(ID id) {
+        return findById(id).isPresent();
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<ID> ids) {
+        List<T> found = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(found::add));
+        return found;
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        List<T> all = new ArrayList<>(findAll());
+        all.sort(comparator(sort));
+        return all;
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        List<T> all = findAll(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        int from = (int) Math.min(pageable.getOffset(), all.size());
+        int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(all.subList(from, to), pageable, all.size());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends ID> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        deleteAll(findAll());
+    }
+
+    private static <T> Comparator<T> comparator(Sort sort) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Object> values = EmbeddedRepositorySupport::compareValues;
+            if (order.isDescending()) {
+                values = values.reversed();
+            }
+            values = order.getNullHandling() == Sort.NullHandling.NULLS_FIRST
+                    ? Comparator.nullsFirst(values) : Comparator.nullsLast(values);
+            comparator = comparator.thenComparing(
+                    entity -> new BeanWrapperImpl(entity).getPropertyValue(order.getProperty()), values);
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.urlShortner.storage;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.nio.file.Path;
+
+/**
+ * Single-node mode without MySQL or Redis: {@code SPRING_PROFILES_ACTIVE=embedded}.
+ * application-embedded.properties switches off the JPA and Redis auto-configuration.
+ */
+@Configuration
+@Profile("embedded")
+@EnableConfigurationProperties(EmbeddedStoreProperties.class)
+public class EmbeddedStoreConfig {
+
+    @Bean
+    public LinkStore linkStore(EmbeddedStoreProperties properties) {
+        return new LinkStore(
+                Path.of(properties.getDataDir()),
+                properties.getSegmentSizeMb() * 1024 * 1024,
+                properties.getInitialCapacity(),
+                properties.getCompactionThreshold()
+        );
+    }
+}
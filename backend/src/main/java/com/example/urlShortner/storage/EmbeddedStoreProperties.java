@@ -0,0 +1,23 @@
+package com.example.urlShortner.storage;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.embedded")
+public class EmbeddedStoreProperties {
+
+    private String dataDir = "./data";
+
+    private int segmentSizeMb = 64;
+
+    // Pre-size the index for the expected number of links to avoid rehashing on startup
+    private int initialCapacity = 1 << 20;
+
+    // Compact the oldest segment once no more than this fraction of it is still live
+    private double compactionThreshold = 0.5;
+
+    private long fsyncIntervalMs = 1000;
+
+    private long compactionIntervalMs = 60000;
+}
@@ -0,0 +1,55 @@
+package com.example.urlShortner.storage;
+
+import com.example.urlShortner.entity.UrlClick;
+import com.example.urlShortner.repository.UrlClickRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-click details aren't kept in embedded mode - only the count and last access time that
+ * UrlService.recordClick writes to the link itself. Saving a click is accepted and dropped.
+ */
+@Component
+@Profile("embedded")
+public class EmbeddedUrlClickRepository extends EmbeddedRepositorySupport<UrlClick, Long> implements UrlClickRepository {
+
+    @Override
+    public <S extends UrlClick> S save(S entity) {
+        if (entity.getClickedAt() == null) {
+            entity.setClickedAt(LocalDateTime.now());
+        }
+        return entity;
+    }
+
+    @Override
+    public int recordClick(String shortCode, LocalDateTime at, String ipAddress, String userAgent, String referrer) {
+        return 0;
+    }
+
+    @Override
+    public Optional<UrlClick> findById(Long id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<UrlClick> findAll() {
+        return List.of();
+    }
+
+    @Override
+    public long count() {
+        return 0;
+    }
+
+    @Override
+    public void deleteById(Long id) {
+    }
+
+    @Override
+    public void delete(UrlClick entity) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.urlShortner.storage;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.repository.UrlRepository;
+import com.example.urlShortner.util.Base62;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * UrlRepository on top of the embedded {@link LinkStore}. Codes are always {@code Base62(id)} in
+ * this mode, so a code lookup is a decode plus an index probe.
+ */
+@Component
+@Profile("embedded")
+@RequiredArgsConstructor
+public class EmbeddedUrlRepository extends EmbeddedRepositorySupport<Url, Long> implements UrlRepository {
+
+    private final LinkStore linkStore;
+
+    @Override
+    public Optional<Url> findByShortCode(String shortCode) {
+        return idOf(shortCode).flatMap(linkStore::get);
+    }
+
+    @Override
+    public boolean existsByShortCode(String shortCode) {
+        return findByShortCode(shortCode).isPresent();
+    }
+
+    // Owner and expiry aren't indexed; both scan the store (fine for a single-node deployment)
+    @Override
+    public List<Url> findByOwnerOrderByCreatedAtDesc(String owner) {
+        return linkStore.findAll(url -> Objects.equals(owner, url.getOwner())).stream()
+                .sorted(Comparator.comparing(Url::getCreatedAt).reversed())
+                .toList();
+    }
+
+    @Override
+    public List<Url> findByExpiryDateBefore(LocalDateTime time) {
+        return linkStore.findAll(url -> url.getExpiryDate() != null && url.getExpiryDate().isBefore(time));
+    }
+
+    @Override
+    public <S extends Url> S save(S entity) {
+        linkStore.save(entity);
+        entity.setShortCode(Base62.encode(entity.getId()));
+        return entity;
+    }
+
+    @Override
+    public <S extends Url> S saveAndFlush(S entity) {
+        // every write already goes straight to the log
+        return save(entity);
+    }
+
+    @Override
+    public int recordAccess(String shortCode, LocalDateTime at) {
+        return idOf(shortCode).filter(id -> linkStore.touch(id, at)).isPresent() ? 1 : 0;
+    }
+
+    @Override
+    public Optional<Url> findById(Long id) {
+        return linkStore.get(id);
+    }
+
+    @Override
+    public List<Url> findAll() {
+        return linkStore.findAll(url -> true);
+    }
+
+    @Override
+    public long count() {
+        return linkStore.count();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        linkStore.delete(id);
+    }
+
+    @Override
+    public void delete(Url entity) {
+        linkStore.delete(entity.getId());
+    }
+
+    static Optional<Long> idOf(String shortCode) {
+        long id = Base62.decodeStrict(shortCode);
+        return id > 0 ? Optional.of(id) : Optional.empty();
+    }
+}
@@ -0,0 +1,555 @@
+package com.example.urlShortner.storage;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.util.Base62;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Single-node link storage: an append-only log of memory-mapped segments plus an off-heap index
+ * from link id to the latest record.
+ *
+ * <ul>
+ *   <li>Reads never lock: index lookup, then an absolute read from the mapped segment.</li>
+ *   <li>Writes are serialized by one lock. A redirect only appends a 25-byte touch record.</li>
+ *   <li>Recovery replays the segments on startup; only the active segment can hold a torn write,
+ *       so only its checksums are verified and the first bad record ends the log.</li>
+ *   <li>Compaction copies the live links of the oldest segment to the head and deletes the file.
+ *       Always compacting the oldest segment means dropped delete records can't resurrect
+ *       anything older.</li>
+ * </ul>
+ *
+ * Data reaches the page cache on every write and disk every {@code app.embedded.fsync-interval-ms},
+ * so a process crash loses nothing and a power loss at most that interval.
+ */
+@Slf4j
+public class LinkStore implements MeterBinder, AutoCloseable {
+
+    private static final byte PUT = 1;
+    private static final byte TOUCH = 2;
+    private static final byte DELETE = 3;
+
+    // Payload offsets of a PUT record
+    private static final int CREATED_AT = 9;
+    private static final int EXPIRY = 17;
+    private static final int CLICKS = 25;
+    private static final int LAST_ACCESSED = 33;
+    private static final int OWNER = 41;
+
+    private static final long NONE = Long.MIN_VALUE;
+    private static final int COMPACTION_BATCH = 1000;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final double compactionThreshold;
+    private final OffHeapIndex index;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong highestId = new AtomicLong();
+
+    // Writer state
+    private final CRC32 crc = new CRC32();
+    private byte[] scratch = new byte[1024];
+
+    private volatile LogSegment[] segments;
+    private volatile LogSegment active;
+
+    public LinkStore(Path directory, int segmentBytes, int initialIndexCapacity, double compactionThreshold) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compactionThreshold = compactionThreshold;
+        this.index = new OffHeapIndex(initialIndexCapacity);
+
+        long started = System.currentTimeMillis();
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open link store in " + directory, e);
+        }
+        log.info("Link store opened: {} links in {} segment(s) in {} ms",
+                index.size(), segments.length, System.currentTimeMillis() - started);
+    }
+
+    // ---------- reads (lock-free) ----------
+
+    public Optional<Url> get(long id) {
+        while (true) {
+            LogSegment[] snapshot = segments;
+            long[] entry = index.lookup(id);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            LogSegment segment = find(snapshot, LogSegment.segmentId(entry[0]));
+            if (segment != null) {
+                return Optional.of(decode(segment, LogSegment.offset(entry[0]), entry[1], entry[2]));
+            }
+            // The record is in a segment created after our snapshot - look again
+        }
+    }
+
+    /** Just the target URL of a link that hasn't expired, without building the whole entity - the redirect hot path. */
+    public Optional<String> getOriginalUrl(long id) {
+        while (true) {
+            LogSegment[] snapshot = segments;
+            long position = index.position(id);
+            if (position < 0) {
+                return Optional.empty();
+            }
+            LogSegment segment = find(snapshot, LogSegment.segmentId(position));
+            if (segment != null) {
+                ByteBuffer buffer = segment.buffer;
+                int payload = LogSegment.offset(position) + LogSegment.RECORD_HEADER_BYTES;
+                long expiry = buffer.getLong(payload + EXPIRY);
+                if (expiry != NONE && expiry <= micros(LocalDateTime.now())) {
+                    return Optional.empty();
+                }
+                int cursor = payload + OWNER;
+                int ownerLength = buffer.getInt(cursor);
+                cursor += 4 + Math.max(ownerLength, 0);
+                return Optional.of(readString(buffer, cursor + 4, buffer.getInt(cursor)));
+            }
+        }
+    }
+
+    public List<Url> findAll(Predicate<Url> filter) {
+        List<Long> ids = new ArrayList<>();
+        index.forEach((id, position) -> ids.add(id));
+
+        List<Url> result = new ArrayList<>();
+        for (Long id : ids) {
+            get(id).filter(filter).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    public long count() {
+        return index.size();
+    }
+
+    // ---------- writes ----------
+
+    public Url save(Url url) {
+        writeLock.lock();
+        try {
+            if (url.getOriginalUrl() == null) {
+                throw new IllegalArgumentException("A link needs an original URL");
+            }
+            if (url.getCreatedAt() == null) {
+                url.setCreatedAt(LocalDateTime.now());
+            }
+            if (url.getClickCount() == null) {
+                url.setClickCount(0L);
+            }
+
+            // A new id is only taken once the record is in the log, so a rejected link leaves no gap in the codes
+            long id = url.getId() != null ? url.getId() : highestId.get() + 1;
+            long clicks = url.getClickCount();
+            long lastAccessed = micros(url.getLastAccessedAt());
+
+            Optional<Url> stored = url.getId() != null ? get(id) : Optional.empty();
+            if (stored.isPresent() && sameLink(stored.get(), url)) {
+                // Only the click stats changed - no need to rewrite the link
+                if (stored.get().getClickCount() != clicks || micros(stored.get().getLastAccessedAt()) != lastAccessed) {
+                    append(encodeTouch(id, clicks, lastAccessed));
+                    index.touch(id, clicks, lastAccessed);
+                }
+                return url;
+            }
+            if (stored.isPresent()) {
+                // An edit is made on a snapshot; keep the stats redirects have counted since it was read
+                url.setClickCount(stored.get().getClickCount());
+                url.setLastAccessedAt(stored.get().getLastAccessedAt());
+                clicks = url.getClickCount();
+                lastAccessed = micros(url.getLastAccessedAt());
+            }
+
+            long position = append(encodePut(url, id));
+            highestId.accumulateAndGet(id, Math::max);
+            url.setId(id);
+            index.put(id, position, clicks, lastAccessed);
+            return url;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Counts one redirect. The read and the increment happen under the write lock, so concurrent clicks all count. */
+    public boolean touch(long id, LocalDateTime accessedAt) {
+        writeLock.lock();
+        try {
+            long[] entry = index.lookup(id);
+            if (entry == null) {
+                return false;
+            }
+            long clicks = entry[1] + 1;
+            long lastAccessed = micros(accessedAt);
+            append(encodeTouch(id, clicks, lastAccessed));
+            return index.touch(id, clicks, lastAccessed);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean delete(long id) {
+        writeLock.lock();
+        try {
+            if (index.lookup(id) == null) {
+                return false;
+            }
+            append(encodeDelete(id));
+            return index.remove(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.embedded.fsync-interval-ms:1000}")
+    public void flush() {
+        active.buffer.force();
+    }
+
+    /**
+     * Rewrites the live links of the oldest segment at the head of the log and deletes it, once
+     * less than {@code app.embedded.compaction-threshold} of it is still live.
+     */
+    @Scheduled(fixedDelayString = "${app.embedded.compaction-interval-ms:60000}")
+    public void compact() {
+        LogSegment[] snapshot = segments;
+        if (snapshot.length < 2) {
+            return;
+        }
+        LogSegment oldest = snapshot[0];
+        int end = oldest.writePosition;
+
+        long live = 0;
+        for (int offset = LogSegment.HEADER_BYTES; offset < end; ) {
+            int length = oldest.buffer.getInt(offset);
+            if (length <= 0) {
+                break;
+            }
+            if (isLivePut(oldest, offset)) {
+                live += LogSegment.RECORD_HEADER_BYTES + length;
+            }
+            offset += LogSegment.RECORD_HEADER_BYTES + length;
+        }
+        double liveRatio = (double) live / Math.max(1, end - LogSegment.HEADER_BYTES);
+        if (liveRatio > compactionThreshold) {
+            return;
+        }
+
+        // Copy in batches so redirects and new links are never blocked for long
+        long copied = 0;
+        int offset = LogSegment.HEADER_BYTES;
+        while (offset < end) {
+            writeLock.lock();
+            try {
+                for (int n = 0; n < COMPACTION_BATCH && offset < end; n++) {
+                    int length = oldest.buffer.getInt(offset);
+                    if (length <= 0) {
+                        offset = end;
+                        break;
+                    }
+                    if (isLivePut(oldest, offset)) {
+                        long id = oldest.buffer.getLong(offset + LogSegment.RECORD_HEADER_BYTES + 1);
+                        long[] entry = index.lookup(id);
+                        // Current click stats go into the copy, so older touch records aren't needed
+                        long position = append(encodePut(decode(oldest, offset, entry[1], entry[2]), id));
+                        index.put(id, position, entry[1], entry[2]);
+                        copied++;
+                    }
+                    offset += LogSegment.RECORD_HEADER_BYTES + length;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        writeLock.lock();
+        try {
+            // The copies must be on disk before the only other copy is deleted
+            active.buffer.force();
+            segments = Arrays.copyOfRange(segments, 1, segments.length);
+        } finally {
+            writeLock.unlock();
+        }
+
+        try {
+            Files.deleteIfExists(oldest.path);
+        } catch (IOException e) {
+            log.warn("Could not delete compacted segment {}", oldest.path, e);
+        }
+        log.info("Compacted {}: {} live links copied ({}% live)", oldest.path.getFileName(), copied,
+                Math.round(liveRatio * 100));
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            active.buffer.force();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("embedded.links", this, LinkStore::count)
+                .description("Links in the embedded store")
+                .register(registry);
+        Gauge.builder("embedded.index.size", index, OffHeapIndex::offHeapBytes)
+                .description("Off-heap memory used by the link index")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("embedded.log.segments", this, store -> store.segments.length)
+                .description("Log segments on disk")
+                .register(registry);
+    }
+
+    // ---------- log internals ----------
+
+    private long append(int length) {
+        crc.reset();
+        crc.update(scratch, 0, length);
+        int checksum = (int) crc.getValue();
+
+        if (!active.fits(length)) {
+            roll(length);
+        }
+        int offset = active.append(scratch, length, checksum);
+        return LogSegment.position(active.id, offset);
+    }
+
+    private void roll(int length) {
+        if (LogSegment.HEADER_BYTES + LogSegment.RECORD_HEADER_BYTES + length > segmentBytes) {
+            throw new IllegalArgumentException("Link of " + length + " bytes doesn't fit in a log segment");
+        }
+        active.seal();
+        try {
+            LogSegment next = LogSegment.create(directory, active.id + 1, segmentBytes, highestId.get());
+            LogSegment[] grown = Arrays.copyOf(segments, segments.length + 1);
+            grown[grown.length - 1] = next;
+            segments = grown;
+            active = next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a new log segment", e);
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().matches("links-\\d{10}\\.log"))
+                    .sorted()
+                    .toList();
+        }
+
+        List<LogSegment> opened = new ArrayList<>();
+        long puts = 0;
+        for (Path file : files) {
+            LogSegment segment = LogSegment.open(file, LogSegment.idOf(file));
+            highestId.accumulateAndGet(segment.highestIdAtCreation(), Math::max);
+            puts += countPuts(segment);
+            opened.add(segment);
+        }
+        // Compaction keeps stale records few, so this is close to the link count and replay never rehashes
+        index.reserve((int) Math.min(puts, Integer.MAX_VALUE));
+        for (int i = 0; i < opened.size(); i++) {
+            replay(opened.get(i), i == opened.size() - 1);
+        }
+        if (opened.isEmpty()) {
+            opened.add(LogSegment.create(directory, 1, segmentBytes, 0));
+        }
+
+        segments = opened.toArray(new LogSegment[0]);
+        active = opened.get(opened.size() - 1);
+    }
+
+    private void replay(LogSegment segment, boolean verifyChecksums) {
+        ByteBuffer buffer = segment.buffer;
+        int offset = LogSegment.HEADER_BYTES;
+
+        while (offset + LogSegment.RECORD_HEADER_BYTES <= segment.capacity) {
+            int length = buffer.getInt(offset);
+            if (length == 0 || length == LogSegment.END_OF_SEGMENT) {
+                break;
+            }
+            boolean torn = length < 0 || offset + LogSegment.RECORD_HEADER_BYTES + length > segment.capacity
+                    || (verifyChecksums && !checksumMatches(buffer, offset, length));
+            if (torn) {
+                log.warn("Dropping torn record at {}:{}", segment.path.getFileName(), offset);
+                // Clear the header so the next write here starts a clean record
+                buffer.putLong(offset, 0L);
+                break;
+            }
+
+            int payload = offset + LogSegment.RECORD_HEADER_BYTES;
+            long id = buffer.getLong(payload + 1);
+            switch (buffer.get(payload)) {
+                case PUT -> {
+                    highestId.accumulateAndGet(id, Math::max);
+                    index.put(id, LogSegment.position(segment.id, offset),
+                            buffer.getLong(payload + CLICKS), buffer.getLong(payload + LAST_ACCESSED));
+                }
+                case TOUCH -> index.touch(id, buffer.getLong(payload + 9), buffer.getLong(payload + 17));
+                case DELETE -> index.remove(id);
+                default -> throw new IllegalStateException("Unknown record type at " + segment.path + ":" + offset);
+            }
+            offset += LogSegment.RECORD_HEADER_BYTES + length;
+        }
+        segment.writePosition = offset;
+    }
+
+    // Record headers only; a torn tail just ends the count early, replay deals with it
+    private static long countPuts(LogSegment segment) {
+        ByteBuffer buffer = segment.buffer;
+        long puts = 0;
+        int offset = LogSegment.HEADER_BYTES;
+        while (offset + LogSegment.RECORD_HEADER_BYTES < segment.capacity) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + LogSegment.RECORD_HEADER_BYTES + length > segment.capacity) {
+                break;
+            }
+            if (buffer.get(offset + LogSegment.RECORD_HEADER_BYTES) == PUT) {
+                puts++;
+            }
+            offset += LogSegment.RECORD_HEADER_BYTES + length;
+        }
+        return puts;
+    }
+
+    private boolean checksumMatches(ByteBuffer buffer, int offset, int length) {
+        CRC32 check = new CRC32();
+        check.update(buffer.slice(offset + LogSegment.RECORD_HEADER_BYTES, length));
+        return (int) check.getValue() == buffer.getInt(offset + 4);
+    }
+
+    private boolean isLivePut(LogSegment segment, int offset) {
+        int payload = offset + LogSegment.RECORD_HEADER_BYTES;
+        return segment.buffer.get(payload) == PUT
+                && index.position(segment.buffer.getLong(payload + 1)) == LogSegment.position(segment.id, offset);
+    }
+
+    private static LogSegment find(LogSegment[] snapshot, int segmentId) {
+        for (LogSegment segment : snapshot) {
+            if (segment.id == segmentId) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    // ---------- record encoding ----------
+
+    private Url decode(LogSegment segment, int offset, long clicks, long lastAccessed) {
+        ByteBuffer buffer = segment.buffer;
+        int payload = offset + LogSegment.RECORD_HEADER_BYTES;
+        long id = buffer.getLong(payload + 1);
+
+        int cursor = payload + OWNER;
+        int ownerLength = buffer.getInt(cursor);
+        String owner = ownerLength < 0 ? null : readString(buffer, cursor + 4, ownerLength);
+        cursor += 4 + Math.max(ownerLength, 0);
+
+        return Url.builder()
+                .id(id)
+                .shortCode(Base62.encode(id))
+                .originalUrl(readString(buffer, cursor + 4, buffer.getInt(cursor)))
+                .createdAt(time(buffer.getLong(payload + CREATED_AT)))
+                .expiryDate(time(buffer.getLong(payload + EXPIRY)))
+                .clickCount(clicks)
+                .lastAccessedAt(time(lastAccessed))
+                .owner(owner)
+                .build();
+    }
+
+    private int encodePut(Url url, long id) {
+        byte[] owner = url.getOwner() == null ? null : url.getOwner().getBytes(UTF_8);
+        byte[] target = url.getOriginalUrl().getBytes(UTF_8);
+        int length = OWNER + 4 + (owner == null ? 0 : owner.length) + 4 + target.length;
+
+        ByteBuffer out = scratch(length);
+        out.put(PUT)
+                .putLong(id)
+                .putLong(micros(url.getCreatedAt()))
+                .putLong(micros(url.getExpiryDate()))
+                .putLong(url.getClickCount())
+                .putLong(micros(url.getLastAccessedAt()));
+        if (owner == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(owner.length).put(owner);
+        }
+        out.putInt(target.length).put(target);
+        return length;
+    }
+
+    private int encodeTouch(long id, long clicks, long lastAccessed) {
+        scratch(25).put(TOUCH).putLong(id).putLong(clicks).putLong(lastAccessed);
+        return 25;
+    }
+
+    private int encodeDelete(long id) {
+        scratch(9).put(DELETE).putLong(id);
+        return 9;
+    }
+
+    private ByteBuffer scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Integer.highestOneBit(length) << 1];
+        }
+        return ByteBuffer.wrap(scratch, 0, length);
+    }
+
+    private static boolean sameLink(Url a, Url b) {
+        return a.getOriginalUrl().equals(b.getOriginalUrl())
+                && Objects.equals(a.getOwner(), b.getOwner())
+                && micros(a.getExpiryDate()) == micros(b.getExpiryDate())
+                && micros(a.getCreatedAt()) == micros(b.getCreatedAt());
+    }
+
+    private static String readString(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static long micros(LocalDateTime time) {
+        if (time == null) {
+            return NONE;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime time(long micros) {
+        if (micros == NONE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.urlShortner.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped, pre-sized file of the link log.
+ *
+ * <pre>
+ * header : int magic | int version | long highest id handed out when the segment was created
+ * record : int length | int crc32(payload) | payload
+ * </pre>
+ * A length of 0 means nothing was written there yet, -1 marks a segment that was closed because
+ * the next record didn't fit.
+ */
+final class LogSegment {
+
+    static final int MAGIC = 0x4C4E4B31; // "LNK1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 8;
+    static final int END_OF_SEGMENT = -1;
+
+    final int id;
+    final Path path;
+    final MappedByteBuffer buffer;
+    final int capacity;
+
+    // Only touched by the writer (and by recovery before the store is published)
+    int writePosition = HEADER_BYTES;
+
+    private LogSegment(int id, Path path, MappedByteBuffer buffer) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    static LogSegment create(Path directory, int id, int capacity, long highestId) throws IOException {
+        LogSegment segment = map(directory.resolve(fileName(id)), id, capacity);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(4, VERSION);
+        segment.buffer.putLong(8, highestId);
+        segment.buffer.force();
+        return segment;
+    }
+
+    static LogSegment open(Path path, int id) throws IOException {
+        LogSegment segment = map(path, id, (int) Files.size(path));
+        if (segment.buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a link log segment: " + path);
+        }
+        if (segment.buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported link log version " + segment.buffer.getInt(4) + " in " + path);
+        }
+        return segment;
+    }
+
+    private static LogSegment map(Path path, int id, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return new LogSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+    }
+
+    static String fileName(int id) {
+        return String.format("links-%010d.log", id);
+    }
+
+    static int idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring("links-".length(), name.length() - ".log".length()));
+    }
+
+    long highestIdAtCreation() {
+        return buffer.getLong(8);
+    }
+
+    boolean fits(int payloadLength) {
+        return writePosition + RECORD_HEADER_BYTES + payloadLength <= capacity;
+    }
+
+    /** Writes a record at the current write position and returns its offset. Writer only. */
+    int append(byte[] payload, int length, int crc) {
+        int offset = writePosition;
+        buffer.putInt(offset + 4, crc);
+        buffer.put(offset + RECORD_HEADER_BYTES, payload, 0, length);
+        // Length goes last: a crash mid-write leaves a zero or a failing checksum, never a half record
+        buffer.putInt(offset, length);
+        writePosition = offset + RECORD_HEADER_BYTES + length;
+        return offset;
+    }
+
+    void seal() {
+        if (writePosition + 4 <= capacity) {
+            buffer.putInt(writePosition, END_OF_SEGMENT);
+        }
+        buffer.force();
+    }
+
+    static long position(int segmentId, int offset) {
+        return ((long) segmentId << 32) | offset;
+    }
+
+    static int segmentId(long position) {
+        return (int) (position >>> 32);
+    }
+
+    static int offset(long position) {
+        return (int) position;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.urlShortner.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Open-addressing hash table from link id to where its latest record sits in the log, kept in a
+ * direct buffer so millions of links cost no heap and no GC work.
+ *
+ * Slot layout (32 bytes): id | position | clickCount | lastAccessed. Click stats live in the slot
+ * so a redirect only appends a small touch record instead of rewriting the link.
+ *
+ * One writer at a time (the caller holds the store's write lock); readers never lock. A new slot's
+ * fields are written before its id is release-stored, and a grown table is only published when
+ * fully built, so a reader sees either a complete entry or none.
+ */
+class OffHeapIndex {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final int SLOT_BYTES = 32;
+    private static final int ID = 0;
+    private static final int POSITION = 8;
+    private static final int CLICKS = 16;
+    private static final int LAST_ACCESSED = 24;
+
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+    private static final double MAX_LOAD = 0.7;
+
+    // 1 GB of slots (~23M links at max load); a single direct buffer can't go past 2 GB
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    private volatile Table table;
+    private int size;
+    private int usedSlots;
+
+    OffHeapIndex(int initialCapacity) {
+        this.table = new Table(Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1);
+    }
+
+    /** Returns {position, clickCount, lastAccessed} or null if the id is unknown. */
+    long[] lookup(long id) {
+        Table t = table;
+        int slot = t.find(id);
+        if (slot < 0) {
+            return null;
+        }
+        long position = (long) LONGS.getAcquire(t.buffer, slot + POSITION);
+        if (position == REMOVED) {
+            return null;
+        }
+        return new long[]{
+                position,
+                (long) LONGS.getOpaque(t.buffer, slot + CLICKS),
+                (long) LONGS.getOpaque(t.buffer, slot + LAST_ACCESSED)
+        };
+    }
+
+    long position(long id) {
+        long[] entry = lookup(id);
+        return entry == null ? REMOVED : entry[0];
+    }
+
+    void put(long id, long position, long clicks, long lastAccessed) {
+        Table t = table;
+        int slot = t.find(id);
+        if (slot >= 0) {
+            if ((long) LONGS.get(t.buffer, slot + POSITION) == REMOVED) {
+                size++;
+            }
+            LONGS.setOpaque(t.buffer, slot + CLICKS, clicks);
+            LONGS.setOpaque(t.buffer, slot + LAST_ACCESSED, lastAccessed);
+            LONGS.setRelease(t.buffer, slot + POSITION, position);
+            return;
+        }
+
+        if (usedSlots + 1 > t.capacity * MAX_LOAD) {
+            t = grow();
+        }
+        t.insert(id, position, clicks, lastAccessed);
+        size++;
+        usedSlots++;
+    }
+
+    /** Updates click stats only; returns false if the id is unknown. */
+    boolean touch(long id, long clicks, long lastAccessed) {
+        Table t = table;
+        int slot = t.find(id);
+        if (slot < 0 || (long) LONGS.get(t.buffer, slot + POSITION) == REMOVED) {
+            return false;
+        }
+        LONGS.setOpaque(t.buffer, slot + CLICKS, clicks);
+        LONGS.setRelease(t.buffer, slot + LAST_ACCESSED, lastAccessed);
+        return true;
+    }
+
+    boolean remove(long id) {
+        Table t = table;
+        int slot = t.find(id);
+        if (slot < 0 || (long) LONGS.get(t.buffer, slot + POSITION) == REMOVED) {
+            return false;
+        }
+        LONGS.setRelease(t.buffer, slot + POSITION, REMOVED);
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Sizes the table for {@code expected} links up front, so filling it doesn't rehash on the way. */
+    void reserve(int expected) {
+        int capacity = table.capacity;
+        while (capacity < MAX_CAPACITY && expected + 1 > capacity * MAX_LOAD) {
+            capacity <<= 1;
+        }
+        if (capacity > table.capacity) {
+            rebuild(capacity);
+        }
+    }
+
+    long offHeapBytes() {
+        return (long) table.capacity * SLOT_BYTES;
+    }
+
+    /** Visits live entries as (id, position). Safe to call concurrently with the writer. */
+    void forEach(EntryVisitor visitor) {
+        Table t = table;
+        for (int slot = 0; slot < t.capacity * SLOT_BYTES; slot += SLOT_BYTES) {
+            long id = (long) LONGS.getAcquire(t.buffer, slot + ID);
+            if (id == EMPTY) {
+                continue;
+            }
+            long position = (long) LONGS.getAcquire(t.buffer, slot + POSITION);
+            if (position != REMOVED) {
+                visitor.visit(id, position);
+            }
+        }
+    }
+
+    // Doubles the table unless dropping removed slots frees enough room
+    private Table grow() {
+        Table old = table;
+        int capacity = size + 1 > old.capacity * MAX_LOAD / 2 ? old.capacity << 1 : old.capacity;
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Embedded index is full (" + size + " links)");
+        }
+        return rebuild(capacity);
+    }
+
+    // Copies the live entries into a new table, then publishes it
+    private Table rebuild(int capacity) {
+        Table old = table;
+        Table grown = new Table(capacity);
+        for (int slot = 0; slot < old.capacity * SLOT_BYTES; slot += SLOT_BYTES) {
+            long id = (long) LONGS.get(old.buffer, slot + ID);
+            long position = (long) LONGS.get(old.buffer, slot + POSITION);
+            if (id != EMPTY && position != REMOVED) {
+                grown.insert(id, position,
+                        (long) LONGS.get(old.buffer, slot + CLICKS),
+                        (long) LONGS.get(old.buffer, slot + LAST_ACCESSED));
+            }
+        }
+        usedSlots = size;
+        table = grown;
+        return grown;
+    }
+
+    private static int hash(long id) {
+        // murmur3 finalizer - ids are sequential, so spread them before masking
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        id *= 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return (int) id;
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(long id, long position);
+    }
+
+    private static final class Table {
+        private final ByteBuffer buffer;
+        private final int capacity;
+        private final int mask;
+
+        Table(int capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.buffer = ByteBuffer.allocateDirect(capacity * SLOT_BYTES + 8).alignedSlice(8).order(ByteOrder.nativeOrder());
+        }
+
+        /** Byte offset of the id's slot, or -1. */
+        int find(long id) {
+            int index = hash(id) & mask;
+            while (true) {
+                int slot = index * SLOT_BYTES;
+                long current = (long) LONGS.getAcquire(buffer, slot + ID);
+                if (current == id) {
+                    return slot;
+                }
+                if (current == EMPTY) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        void insert(long id, long position, long clicks, long lastAccessed) {
+            int index = hash(id) & mask;
+            while ((long) LONGS.get(buffer, index * SLOT_BYTES + ID) != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            int slot = index * SLOT_BYTES;
+            LONGS.set(buffer, slot + POSITION, position);
+            LONGS.set(buffer, slot + CLICKS, clicks);
+            LONGS.set(buffer, slot + LAST_ACCESSED, lastAccessed);
+            LONGS.setRelease(buffer, slot + ID, id);
+        }
+    }
+}
@@ -21,5 +21,24 @@ public class Base62 {
         }
         return num;
     }
+
+    /**
+     * Returns the number a code was produced from, or -1 if {@link #encode(long)} could not have
+     * produced it (unknown characters, leading zeros, too long to fit in a long).
+     */
+    public static long decodeStrict(String str) {
+        if (str == null || str.isEmpty() || str.length() > 10 || str.charAt(0) == '0') {
+            return -1;
+        }
+        long num = 0;
+        for (int i = 0; i < str.length(); i++) {
+            int digit = ALPHABET.indexOf(str.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            num = num * BASE + digit;
+        }
+        return num;
+    }
 }
 
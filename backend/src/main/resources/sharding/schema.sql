@@ -0,0 +1,56 @@
+-- Applied to every physical shard on startup (MySQL, or H2 in MODE=MySQL)
+
+CREATE TABLE IF NOT EXISTS urls (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    short_code       VARCHAR(255) UNIQUE,
+    original_url     TEXT         NOT NULL,
+    created_at       DATETIME(6)  NOT NULL,
+    expiry_date      DATETIME(6),
+    click_count      BIGINT       NOT NULL,
+    last_accessed_at DATETIME(6),
+    owner            VARCHAR(255),
+    updated_at       DATETIME(6),
+    INDEX idx_urls_owner (owner),
+    INDEX idx_urls_expiry (expiry_date)
+);
+
+CREATE TABLE IF NOT EXISTS url_clicks (
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    clicked_at DATETIME(6) NOT NULL,
+    user_agent VARCHAR(1024),
+    referrer   VARCHAR(1024),
+    ip_address VARCHAR(45),
+    url_id     BIGINT      NOT NULL,
+    CONSTRAINT fk_url_clicks_url FOREIGN KEY (url_id) REFERENCES urls (id)
+);
+
+-- Outbox of link changes, relayed to the url-changes Redis stream
+CREATE TABLE IF NOT EXISTS url_change_events (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type   VARCHAR(16)  NOT NULL,
+    short_code   VARCHAR(255) NOT NULL,
+    original_url TEXT,
+    created_at   DATETIME(6)  NOT NULL,
+    published_at DATETIME(6),
+    INDEX idx_url_change_events_published (published_at)
+);
+
+-- Next free shard-local id per logical shard; moves with the shard during a migration
+CREATE TABLE IF NOT EXISTS shard_sequences (
+    shard_id INT PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+-- Placement overrides and migration state written by ShardMigrator (only used on the first datasource)
+CREATE TABLE IF NOT EXISTS shard_placement (
+    logical_shard INT PRIMARY KEY,
+    physical_name VARCHAR(64) NOT NULL,
+    moves         INT         NOT NULL DEFAULT 0,
+    state         VARCHAR(16) NOT NULL DEFAULT 'ACTIVE'
+);
+
+-- When each running instance last read shard_placement, so a migration knows everyone has seen its changes
+CREATE TABLE IF NOT EXISTS shard_instances (
+    instance_id  VARCHAR(64) PRIMARY KEY,
+    refreshed_at DATETIME(6) NOT NULL
+);
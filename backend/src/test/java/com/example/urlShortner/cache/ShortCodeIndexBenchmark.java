@@ -0,0 +1,147 @@
+package com.example.urlShortner.cache;
+
+import com.example.urlShortner.util.Base62;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Memory and GC cost of the local resolution tier. Not part of the normal build:
+ *
+ *   mvn test -Pbenchmarks -Dtest=ShortCodeIndexBenchmark
+ *
+ * 50M entries need ~5 GB of direct memory; override the JVM flags with -Dbenchmark.jvm.args=...
+ * The heap HashMap baseline only runs at 10M, at 50M it doesn't fit in a 4 GB heap.
+ */
+class ShortCodeIndexBenchmark {
+
+    private static final int LOOKUPS = 10_000_000;
+    private static final int CHUNK_BYTES = 64 << 20;
+
+    @ParameterizedTest(name = "off-heap index, {0} entries")
+    @ValueSource(ints = {10_000_000, 50_000_000})
+    void offHeapIndex(int entries) {
+        long heapBefore = usedHeapAfterGc();
+        long directBefore = directMemoryUsed();
+        GcSnapshot gcBefore = GcSnapshot.now();
+
+        ShortCodeIndex index = new ShortCodeIndex(65_536, CHUNK_BYTES, (int) (entries * 64L / CHUNK_BYTES) + 2);
+        long expiresAt = Long.MAX_VALUE;
+        long slowestPut = 0;
+        long start = System.nanoTime();
+        for (long id = 1; id <= entries; id++) {
+            long t0 = System.nanoTime();
+            index.put(id, url(id), expiresAt);
+            slowestPut = Math.max(slowestPut, System.nanoTime() - t0);
+        }
+        long loadNanos = System.nanoTime() - start;
+        GcSnapshot gcLoad = GcSnapshot.now().minus(gcBefore);
+
+        long heap = usedHeapAfterGc() - heapBefore;
+        long direct = directMemoryUsed() - directBefore;
+
+        SplittableRandom random = new SplittableRandom(42);
+        GcSnapshot gcBeforeLookups = GcSnapshot.now();
+        start = System.nanoTime();
+        long found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (index.get(1 + random.nextInt(entries)) != null) {
+                found++;
+            }
+        }
+        long lookupNanos = System.nanoTime() - start;
+        GcSnapshot gcLookups = GcSnapshot.now().minus(gcBeforeLookups);
+
+        report("off-heap index", entries, heap, direct, loadNanos, slowestPut, gcLoad, lookupNanos, gcLookups);
+        assertThat(found).isEqualTo(LOOKUPS);
+    }
+
+    @Test
+    void heapHashMapBaseline() {
+        int entries = 10_000_000;
+        long heapBefore = usedHeapAfterGc();
+        GcSnapshot gcBefore = GcSnapshot.now();
+
+        Map<String, String> map = new HashMap<>();
+        long slowestPut = 0;
+        long start = System.nanoTime();
+        for (long id = 1; id <= entries; id++) {
+            long t0 = System.nanoTime();
+            map.put(Base62.encode(id), url(id));
+            slowestPut = Math.max(slowestPut, System.nanoTime() - t0);
+        }
+        long loadNanos = System.nanoTime() - start;
+        GcSnapshot gcLoad = GcSnapshot.now().minus(gcBefore);
+        long heap = usedHeapAfterGc() - heapBefore;
+
+        SplittableRandom random = new SplittableRandom(42);
+        GcSnapshot gcBeforeLookups = GcSnapshot.now();
+        start = System.nanoTime();
+        long found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (map.get(Base62.encode(1 + random.nextInt(entries))) != null) {
+                found++;
+            }
+        }
+        long lookupNanos = System.nanoTime() - start;
+        GcSnapshot gcLookups = GcSnapshot.now().minus(gcBeforeLookups);
+
+        report("heap HashMap", entries, heap, 0, loadNanos, slowestPut, gcLoad, lookupNanos, gcLookups);
+        assertThat(found).isEqualTo(LOOKUPS);
+    }
+
+    private static String url(long id) {
+        return "https://example.com/articles/" + id;
+    }
+
+    private static void report(String name, int entries, long heap, long direct, long loadNanos, long slowestPut,
+                               GcSnapshot gcLoad, long lookupNanos, GcSnapshot gcLookups) {
+        System.out.printf("%n%s, %,d entries%n", name, entries);
+        System.out.printf("  heap retained    %,d MB (%.1f bytes/entry)%n", heap >> 20, (double) heap / entries);
+        System.out.printf("  off-heap         %,d MB (%.1f bytes/entry)%n", direct >> 20, (double) direct / entries);
+        System.out.printf("  load             %,d ms, slowest put %,d us, %d GCs / %,d ms%n",
+                loadNanos / 1_000_000, slowestPut / 1_000, gcLoad.count, gcLoad.millis);
+        System.out.printf("  lookups          %.0f ns/op, %d GCs / %,d ms over %,d lookups%n",
+                (double) lookupNanos / LOOKUPS, gcLookups.count, gcLookups.millis, LOOKUPS);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directMemoryUsed() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    private record GcSnapshot(long count, long millis) {
+
+        static GcSnapshot now() {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return new GcSnapshot(count, millis);
+        }
+
+        GcSnapshot minus(GcSnapshot other) {
+            return new GcSnapshot(count - other.count, millis - other.millis);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.urlShortner.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShortCodeIndexTests {
+
+    private static final long FOREVER = Long.MAX_VALUE;
+
+    @Test
+    void updatesAndRemovesByDecodedId() {
+        ShortCodeIndex index = new ShortCodeIndex(16, 1 << 16, 4);
+        index.put(42, "https://example.com/ü", FOREVER);
+        assertThat(index.get(42)).isEqualTo("https://example.com/ü");
+
+        index.put(42, "https://example.com/new", FOREVER);
+        assertThat(index.get(42)).isEqualTo("https://example.com/new");
+
+        index.remove(42);
+        assertThat(index.get(42)).isNull();
+        assertThat(index.get(43)).isNull();
+
+        index.put(7, "https://example.com/7", FOREVER);
+        index.clear();
+        assertThat(index.get(7)).isNull();
+        index.put(7, "https://example.com/again", FOREVER);
+        assertThat(index.get(7)).isEqualTo("https://example.com/again");
+    }
+
+    @Test
+    void expiredEntriesReadAsMisses() {
+        ShortCodeIndex index = new ShortCodeIndex(16, 1 << 16, 4);
+        index.put(1, "https://example.com/old", System.currentTimeMillis() - 1);
+        assertThat(index.get(1)).isNull();
+    }
+
+    @Test
+    void oldestChunkIsEvictedWhenTheArenaIsFull() {
+        ShortCodeIndex index = new ShortCodeIndex(16, 1024, 2);
+        String url = "https://example.com/" + "x".repeat(80);
+        for (long id = 1; id <= 100; id++) {
+            index.put(id, url + id, FOREVER);
+        }
+        assertThat(index.get(1)).isNull();
+        assertThat(index.get(100)).isEqualTo(url + 100);
+        assertThat(index.offHeapBytes()).isLessThan(64 * 1024);
+    }
+
+    @Test
+    void readersSeeEveryEntryWhileTheTableGrows() throws InterruptedException {
+        ShortCodeIndex index = new ShortCodeIndex(16, 1 << 20, 64);
+        index.put(1, "https://example.com/1", FOREVER);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                if (!"https://example.com/1".equals(index.get(1))) {
+                    failure.set("lost entry 1 during a resize");
+                }
+            }
+        });
+        reader.start();
+
+        boolean sawResize = false;
+        for (long id = 2; id <= 200_000; id++) {
+            index.put(id, "https://example.com/" + id, FOREVER);
+            sawResize |= index.isResizing();
+        }
+        done.set(true);
+        reader.join();
+
+        assertThat(failure.get()).isNull();
+        assertThat(sawResize).isTrue();
+        for (long id = 1; id <= 200_000; id++) {
+            assertThat(index.get(id)).isEqualTo("https://example.com/" + id);
+        }
+    }
+}
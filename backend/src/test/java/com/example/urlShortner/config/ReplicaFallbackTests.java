@@ -0,0 +1,69 @@
+package com.example.urlShortner.config;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.service.CacheService;
+import com.example.urlShortner.service.CounterService;
+import com.example.urlShortner.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+// The "replica" is a separate, non-replicating database, so anything created through the app is missing there
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:fallback-primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.datasource.routing.enabled=true",
+        "app.datasource.routing.replicas[0].url=jdbc:h2:mem:fallback-replica;MODE=MySQL;DB_CLOSE_DELAY=-1;"
+                + "INIT=RUNSCRIPT FROM 'classpath:sharding/schema.sql'",
+        "app.events.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReplicaFallbackTests {
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    private ReplicaHealthIndicator replicaHealth;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CacheService cacheService;
+
+    @MockBean
+    private CounterService counterService;
+
+    @Test
+    void redirectMissOnTheReplicaIsRetriedOnThePrimary() throws Exception {
+        replicaHealth.checkReplicas();
+        assertThat(routingDataSource.getReplicas().get(0).isAvailable()).isTrue();
+
+        // Only on the replica: proves lookups are served from there first
+        new JdbcTemplate(routingDataSource.getReplicas().get(0).getDataSource()).update(
+                "INSERT INTO urls (short_code, original_url, created_at, click_count) VALUES ('onreplica', 'https://example.com/replica', NOW(), 0)");
+        assertThat(urlService.getUrlEntity("onreplica")).map(Url::getOriginalUrl).contains("https://example.com/replica");
+
+        Url fresh = urlService.createShortUrl("https://example.com/fresh", null, "alice");
+        assertThat(urlService.getUrlEntity(fresh.getShortCode())).map(Url::getOriginalUrl).contains("https://example.com/fresh");
+        mockMvc.perform(get("/{shortCode}", fresh.getShortCode()))
+                .andExpect(redirectedUrl("https://example.com/fresh"));
+
+        assertThat(urlService.getUrlEntity("missing")).isEmpty();
+    }
+}
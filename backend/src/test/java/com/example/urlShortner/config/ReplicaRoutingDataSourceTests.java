@@ -0,0 +1,113 @@
+package com.example.urlShortner.config;
+
+import com.example.urlShortner.config.ReplicaRoutingDataSource.Replica;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTests {
+
+    private final HikariDataSource primary = mock(HikariDataSource.class);
+    private final Replica first = new Replica("replica-0", mock(HikariDataSource.class));
+    private final Replica second = new Replica("replica-1", mock(HikariDataSource.class));
+    private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(first, second));
+
+    @AfterEach
+    void clearTransaction() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void writesGoToThePrimaryAndReadOnlyTransactionsRotateOverReplicas() {
+        first.update(true, false, 0);
+        second.update(true, false, 0);
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Set<Object> keys = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            keys.add(routing.determineCurrentLookupKey());
+        }
+        assertThat(keys).containsExactlyInAnyOrder("replica-0", "replica-1");
+        assertThat(routing.readTarget()).isIn(first.getDataSource(), second.getDataSource());
+    }
+
+    @Test
+    void replicasOutOfRotationAreSkippedAndReadsFallBackToThePrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Not yet checked: replicas start out of rotation
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+
+        first.update(false, false, -1);
+        second.update(true, false, 1);
+        for (int i = 0; i < 4; i++) {
+            assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-1");
+        }
+
+        second.update(true, true, 30);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        assertThat(routing.readTarget()).isSameAs(primary);
+    }
+
+    @Test
+    void healthCheckTakesDownAndLaggingReplicasOutOfRotation() throws SQLException {
+        ReplicaProperties properties = new ReplicaProperties();
+        properties.setMaxLagSeconds(5);
+        ReplicaHealthIndicator health = new ReplicaHealthIndicator(routing, properties);
+
+        reportLag(first, 2);
+        when(second.getDataSource().getConnection()).thenThrow(new SQLException("Connection refused"));
+        health.checkReplicas();
+        assertThat(first.isAvailable()).isTrue();
+        assertThat(second.isAvailable()).isFalse();
+
+        reportLag(first, 30);
+        health.checkReplicas();
+        assertThat(first.isLagging()).isTrue();
+        assertThat(first.getLagSeconds()).isEqualTo(30);
+        assertThat(first.isAvailable()).isFalse();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+
+        reportLag(first, 0);
+        health.checkReplicas();
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-0");
+    }
+
+    @Test
+    void closeShutsDownReplicaPools() {
+        routing.close();
+        verify(first.getDataSource()).close();
+        verify(second.getDataSource()).close();
+    }
+
+    private static void reportLag(Replica replica, long seconds) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet status = mock(ResultSet.class);
+        when(replica.getDataSource().getConnection()).thenReturn(connection);
+        when(connection.isValid(2)).thenReturn(true);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(status);
+        when(status.next()).thenReturn(true);
+        when(status.getLong("Seconds_Behind_Source")).thenReturn(seconds);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.urlShortner.controller;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.repository.UrlRepository;
+import com.example.urlShortner.service.CacheService;
+import com.example.urlShortner.service.CounterService;
+import com.example.urlShortner.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:redirects;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.events.enabled=false"
+})
+@AutoConfigureMockMvc
+class RedirectControllerTests {
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @SpyBean
+    private UrlRepository urlRepository;
+
+    @MockBean
+    private CacheService cacheService;
+
+    @MockBean
+    private CounterService counterService;
+
+    @Test
+    void cachedRedirectsDoNotReadTheLinkButStillCountTheClick() throws Exception {
+        Url url = urlService.createShortUrl("https://example.com/cached", LocalDateTime.now().plusMinutes(30), "alice");
+        // Cached for no longer than the link lives
+        verify(cacheService).saveUrl(eq(url.getShortCode()), eq("https://example.com/cached"), longThat(ttl -> ttl > 0 && ttl <= 30));
+
+        when(cacheService.getUrl(url.getShortCode())).thenReturn("https://example.com/cached");
+        clearInvocations(urlRepository);
+        mockMvc.perform(get("/{shortCode}", url.getShortCode()).header("User-Agent", "test-agent"))
+                .andExpect(redirectedUrl("https://example.com/cached"));
+
+        verify(urlRepository, never()).findByShortCode(anyString());
+        assertThat(jdbcTemplate.queryForObject("SELECT click_count FROM urls WHERE id = ?", Long.class, url.getId())).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT user_agent FROM url_clicks WHERE url_id = ?", String.class, url.getId()))
+                .isEqualTo("test-agent");
+    }
+
+    @Test
+    void missesAreResolvedFromTheDatabaseAndExpiredLinksAreNotCached() throws Exception {
+        Url live = urlService.createShortUrl("https://example.com/live", null, "alice");
+        Url expired = urlService.createShortUrl("https://example.com/expired", null, "alice");
+        jdbcTemplate.update("UPDATE urls SET expiry_date = ? WHERE id = ?", LocalDateTime.now().minusMinutes(1), expired.getId());
+        clearInvocations(cacheService);
+
+        mockMvc.perform(get("/{shortCode}", live.getShortCode()))
+                .andExpect(redirectedUrl("https://example.com/live"));
+        verify(cacheService).saveUrl(eq(live.getShortCode()), eq("https://example.com/live"), anyLong());
+
+        mockMvc.perform(get("/{shortCode}", expired.getShortCode()))
+                .andExpect(view().name("expired"));
+        mockMvc.perform(get("/{shortCode}", "nosuchcode"))
+                .andExpect(redirectedUrl("/error"));
+        verify(cacheService, never()).saveUrl(eq(expired.getShortCode()), anyString(), anyLong());
+        assertThat(jdbcTemplate.queryForObject("SELECT click_count FROM urls WHERE id = ?", Long.class, expired.getId())).isZero();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.urlShortner.events;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.service.CacheService;
+import com.example.urlShortner.service.CounterService;
+import com.example.urlShortner.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Relay and consumer are mocked out: this is only about what the outbox writes, and when
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.events.enabled=true"
+})
+class UrlChangeOutboxTests {
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private UrlChangeRelay relay;
+
+    @MockBean
+    private UrlChangeConsumer consumer;
+
+    @MockBean
+    private CacheService cacheService;
+
+    @MockBean
+    private CounterService counterService;
+
+    @Test
+    void outboxRowCommitsAndRollsBackWithTheChange() {
+        // Nothing to announce for a new link: no instance can have it cached yet
+        Url url = urlService.createShortUrl("https://example.com/a", null, "alice");
+        assertThat(count("url_change_events")).isZero();
+
+        url.setOriginalUrl("https://example.com/b");
+        transactionTemplate.executeWithoutResult(status -> {
+            urlService.saveUrl(url);
+            status.setRollbackOnly();
+        });
+        assertThat(count("url_change_events")).isZero();
+
+        urlService.saveUrl(url);
+        assertThat(jdbcTemplate.queryForList("SELECT event_type, short_code, original_url FROM url_change_events"))
+                .containsExactly(Map.of("EVENT_TYPE", "UPDATED", "SHORT_CODE", url.getShortCode(),
+                        "ORIGINAL_URL", "https://example.com/b"));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.urlShortner.events;
+
+import com.example.urlShortner.entity.UrlChangeEvent;
+import com.example.urlShortner.repository.UrlChangeEventRepository;
+import com.example.urlShortner.service.CacheService;
+import com.example.urlShortner.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/** Relay and consumer against an in-memory stand-in for the url-changes stream and the offsets hash. */
+@SuppressWarnings("unchecked")
+class UrlChangeStreamTests {
+
+    private final List<MapRecord<String, Object, Object>> stream = new ArrayList<>();
+    private final Map<Object, Object> offsets = new HashMap<>();
+    private long lastId;
+    private int addsUntilFailure = Integer.MAX_VALUE;
+
+    private final RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+    private final StreamOperations<String, Object, Object> streamOps = mock(StreamOperations.class);
+    private final UrlChangeEventRepository repository = mock(UrlChangeEventRepository.class);
+    private final CacheService cacheService = mock(CacheService.class);
+
+    @BeforeEach
+    void fakeRedis() {
+        ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+        HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+        doReturn(streamOps).when(redisTemplate).opsForStream();
+        doReturn(hashOps).when(redisTemplate).opsForHash();
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+
+        when(streamOps.add(any(MapRecord.class))).thenAnswer(invocation -> {
+            if (addsUntilFailure-- <= 0) {
+                throw new RedisConnectionFailureException("Connection refused");
+            }
+            return append(((MapRecord<String, Object, Object>) invocation.getArgument(0)).getValue());
+        });
+        when(streamOps.read(any(StreamReadOptions.class), any(StreamOffset.class))).thenAnswer(invocation -> {
+            StreamReadOptions options = invocation.getArgument(0);
+            StreamOffset<String> from = invocation.getArgument(1);
+            long after = RecordId.of(from.getOffset().getOffset()).getTimestamp();
+            return stream.stream().filter(record -> record.getId().getTimestamp() > after).limit(options.getCount()).toList();
+        });
+        when(streamOps.range(eq(UrlChangeRelay.STREAM_KEY), any(Range.class), any(Limit.class)))
+                .thenAnswer(invocation -> stream.isEmpty() ? List.of() : List.of(stream.get(0)));
+        when(streamOps.reverseRange(eq(UrlChangeRelay.STREAM_KEY), any(Range.class), any(Limit.class)))
+                .thenAnswer(invocation -> stream.isEmpty() ? List.of() : List.of(stream.get(stream.size() - 1)));
+        when(hashOps.get(anyString(), any())).thenAnswer(invocation -> offsets.get(invocation.getArgument(1)));
+        doAnswer(invocation -> offsets.put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(hashOps).put(anyString(), any(), any());
+    }
+
+    @Test
+    void rowsAreMarkedPublishedOnlyOnceTheyAreInTheStream() {
+        UrlChangeRelay relay = relay();
+        UrlChangeEvent deleted = event(1L, UrlChangeEvent.Type.DELETED, "a");
+        UrlChangeEvent updated = event(2L, UrlChangeEvent.Type.UPDATED, "b");
+        when(repository.findByPublishedAtIsNullOrderByIdAsc(any())).thenReturn(List.of(deleted, updated));
+
+        // Redis goes away between the two XADDs: neither row may be marked
+        addsUntilFailure = 1;
+        relay.relay();
+        verify(repository, never()).markPublished(any(), any());
+
+        addsUntilFailure = Integer.MAX_VALUE;
+        relay.relay();
+        InOrder order = inOrder(cacheService, streamOps, repository);
+        order.verify(streamOps).add(any(MapRecord.class));
+        order.verify(cacheService).deleteUrl("b");
+        order.verify(streamOps).add(any(MapRecord.class));
+        order.verify(repository).markPublished(eq(List.of(1L, 2L)), any());
+        // At-least-once: the row that made it in before the failure is published again
+        assertThat(stream).extracting(record -> record.getValue().get("shortCode")).containsExactly("a", "a", "b");
+    }
+
+    @Test
+    void restartedConsumerReplaysFromItsStoredOffset() {
+        append(UrlChangeEvent.Type.UPDATED, "a");
+        UrlChangeListener before = mock(UrlChangeListener.class);
+        UrlChangeConsumer consumer = consumer(before);
+        consumer.poll(); // first run of this instance id starts at the end of the stream
+        append(UrlChangeEvent.Type.UPDATED, "b");
+        consumer.poll();
+        verify(before).onUrlChanged(change(UrlChangeEvent.Type.UPDATED, "b"));
+        verifyNoMoreInteractions(before);
+
+        // Changes made while the instance was down
+        append(UrlChangeEvent.Type.UPDATED, "c");
+        append(UrlChangeEvent.Type.DELETED, "d");
+        UrlChangeListener after = mock(UrlChangeListener.class);
+        consumer(after).poll();
+
+        InOrder order = inOrder(after);
+        order.verify(after).onUrlChanged(change(UrlChangeEvent.Type.UPDATED, "c"));
+        order.verify(after).onUrlChanged(change(UrlChangeEvent.Type.DELETED, "d"));
+        verifyNoMoreInteractions(after);
+    }
+
+    @Test
+    void consumerResetsWhenItsStoredOffsetWasTrimmed() {
+        UrlChangeListener before = mock(UrlChangeListener.class);
+        UrlChangeConsumer consumer = consumer(before);
+        consumer.poll();
+        append(UrlChangeEvent.Type.UPDATED, "a");
+        consumer.poll();
+
+        append(UrlChangeEvent.Type.UPDATED, "b");
+        append(UrlChangeEvent.Type.UPDATED, "c");
+        append(UrlChangeEvent.Type.UPDATED, "d");
+        stream.subList(0, 2).clear(); // trimmed to c, d: "b" is gone and this instance never saw it
+        UrlChangeListener after = mock(UrlChangeListener.class);
+        consumer(after).poll();
+
+        InOrder order = inOrder(after);
+        order.verify(after).onReset();
+        order.verify(after).onUrlChanged(change(UrlChangeEvent.Type.UPDATED, "c"));
+        order.verify(after).onUrlChanged(change(UrlChangeEvent.Type.UPDATED, "d"));
+        verifyNoMoreInteractions(after);
+    }
+
+    private UrlChangeRelay relay() {
+        UrlChangeRelay relay = new UrlChangeRelay(repository, cacheService, redisTemplate,
+                new StaticListableBeanFactory().getBeanProvider(ShardRouter.class));
+        ReflectionTestUtils.setField(relay, "instanceId", "instance-a");
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "streamMaxLength", 100_000L);
+        ReflectionTestUtils.setField(relay, "lockTtlMs", 10_000L);
+        return relay;
+    }
+
+    private UrlChangeConsumer consumer(UrlChangeListener listener) {
+        UrlChangeConsumer consumer = new UrlChangeConsumer(redisTemplate,
+                new StaticListableBeanFactory(Map.of("listener", listener)).getBeanProvider(UrlChangeListener.class));
+        ReflectionTestUtils.setField(consumer, "instanceId", "instance-a");
+        ReflectionTestUtils.setField(consumer, "batchSize", 500);
+        return consumer;
+    }
+
+    private RecordId append(UrlChangeEvent.Type type, String shortCode) {
+        return append(Map.of("type", type.name(), "shortCode", shortCode, "originalUrl", "https://example.com/" + shortCode));
+    }
+
+    private RecordId append(Map<Object, Object> fields) {
+        RecordId id = RecordId.of(++lastId, 0);
+        stream.add(StreamRecords.newRecord().in(UrlChangeRelay.STREAM_KEY).withId(id).ofMap(fields));
+        return id;
+    }
+
+    private static UrlChange change(UrlChangeEvent.Type type, String shortCode) {
+        return new UrlChange(type, shortCode, "https://example.com/" + shortCode);
+    }
+
+    private static UrlChangeEvent event(Long id, UrlChangeEvent.Type type, String shortCode) {
+        return UrlChangeEvent.builder()
+                .id(id)
+                .type(type)
+                .shortCode(shortCode)
+                .originalUrl("https://example.com/" + shortCode)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
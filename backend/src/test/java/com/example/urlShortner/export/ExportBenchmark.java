@@ -0,0 +1,149 @@
+package com.example.urlShortner.export;
+
+import com.example.urlShortner.config.ReplicaRoutingDataSource;
+import com.example.urlShortner.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Click export throughput. Not part of the normal build:
+ *
+ *   mvn test -Pbenchmarks -Dtest=ExportBenchmark
+ *
+ * Runs against an in-memory H2 by default, so the numbers include the database. To measure against
+ * MySQL pass -Dexport.benchmark.url=jdbc:mysql://... (plus .username / .password); the schema is
+ * created if missing and the owner "export-benchmark" is filled with the requested number of clicks.
+ */
+class ExportBenchmark {
+
+    private static final String OWNER = "export-benchmark";
+    private static final int LINKS = 1_000;
+
+    @ParameterizedTest(name = "{0} clicks")
+    @ValueSource(ints = {1_000_000, 5_000_000})
+    void exportClicks(int clicks) throws IOException {
+        DataSource dataSource = dataSource(clicks);
+        fill(new JdbcTemplate(dataSource), clicks);
+
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        ExportService exportService = new ExportService(dataSource, beans.getBeanProvider(ShardRouter.class),
+                beans.getBeanProvider(ReplicaRoutingDataSource.class), new ObjectMapper(), 1, 1000, 60);
+
+        System.out.printf("%nExport of %,d clicks%n", clicks);
+        run(exportService, clicks, ExportFormat.CSV, false);
+        run(exportService, clicks, ExportFormat.NDJSON, false);
+        run(exportService, clicks, ExportFormat.CSV, true);
+    }
+
+    private static void run(ExportService exportService, int clicks, ExportFormat format, boolean gzip) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        long gcBefore = gcMillis();
+        long start = System.nanoTime();
+        exportService.export(ExportService.Dataset.CLICKS, OWNER, null, null, format, gzip).writeTo(out);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("  %-6s%-5s %,10.0f rows/s  %7.1f MB/s  %,6d MB written  GC %,d ms%n",
+                format.getExtension(), gzip ? "+gz" : "", out.lines / seconds, out.bytes / seconds / (1 << 20),
+                out.bytes >> 20, gcMillis() - gcBefore);
+        if (!gzip) {
+            assertThat(out.lines).isEqualTo(format == ExportFormat.CSV ? clicks + 1 : clicks);
+        }
+    }
+
+    private static DataSource dataSource(int clicks) {
+        String url = System.getProperty("export.benchmark.url");
+        DataSource dataSource;
+        if (url != null) {
+            dataSource = new DriverManagerDataSource(url,
+                    System.getProperty("export.benchmark.username", "root"),
+                    System.getProperty("export.benchmark.password", ""));
+        } else {
+            JdbcDataSource h2 = new JdbcDataSource();
+            h2.setURL("jdbc:h2:mem:export-benchmark-" + clicks + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+            dataSource = h2;
+        }
+        new ResourceDatabasePopulator(new ClassPathResource("sharding/schema.sql")).execute(dataSource);
+        return dataSource;
+    }
+
+    private static void fill(JdbcTemplate jdbc, int clicks) {
+        jdbc.update("DELETE FROM url_clicks WHERE url_id IN (SELECT id FROM urls WHERE owner = ?)", OWNER);
+        jdbc.update("DELETE FROM urls WHERE owner = ?", OWNER);
+        for (int i = 0; i < LINKS; i++) {
+            jdbc.update("INSERT INTO urls (short_code, original_url, created_at, click_count, owner)"
+                    + " VALUES (?, ?, NOW(), 0, ?)", "bench" + i, "https://example.com/articles/" + i, OWNER);
+        }
+        Long firstId = jdbc.queryForObject("SELECT MIN(id) FROM urls WHERE owner = ?", Long.class, OWNER);
+
+        int batchSize = 10_000;
+        for (int done = 0; done < clicks; done += batchSize) {
+            int size = Math.min(batchSize, clicks - done);
+            int offset = done;
+            jdbc.batchUpdate("INSERT INTO url_clicks (clicked_at, ip_address, user_agent, referrer, url_id)"
+                            + " VALUES (NOW(), ?, ?, ?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            int n = offset + i;
+                            ps.setString(1, "10.0." + (n >> 8 & 255) + "." + (n & 255));
+                            ps.setString(2, "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 Chrome/120.0");
+                            ps.setString(3, n % 3 == 0 ? null : "https://news.example.org/post/" + n % 1000);
+                            ps.setLong(4, firstId + n % LINKS);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return size;
+                        }
+                    });
+        }
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .filter(millis -> millis > 0)
+                .sum();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long bytes;
+        long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
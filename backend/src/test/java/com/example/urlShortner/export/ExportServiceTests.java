@@ -0,0 +1,160 @@
+package com.example.urlShortner.export;
+
+import com.example.urlShortner.config.ReplicaRoutingDataSource;
+import com.example.urlShortner.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExportServiceTests {
+
+    private ExportService exportService;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:export-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("sharding/schema.sql")).execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        exportService = new ExportService(dataSource, beans.getBeanProvider(ShardRouter.class),
+                beans.getBeanProvider(ReplicaRoutingDataSource.class), new ObjectMapper(), 1, 2, 60);
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void csvExportQuotesFieldsAndResumesFromACursor() throws IOException {
+        insertLink(1, "a", "https://example.com/?q=1,2", "alice");
+        insertLink(2, "b", "https://example.com/\"quoted\"", "alice");
+        insertLink(3, "c", "https://example.com/other", "bob");
+        insertLink(4, "d", "https://example.com/last", "alice");
+
+        List<String> lines = lines(run(ExportService.Dataset.LINKS, "alice", null, null, ExportFormat.CSV, false));
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).startsWith("cursor,shortCode,originalUrl,owner");
+        assertThat(lines.get(1)).startsWith("db:1,a,\"https://example.com/?q=1,2\",alice,0,2024-01-01T00:00");
+        assertThat(lines.get(2)).startsWith("db:2,b,\"https://example.com/\"\"quoted\"\"\",alice");
+        assertThat(lines.get(3)).startsWith("db:4,d,");
+
+        List<String> resumed = lines(run(ExportService.Dataset.LINKS, "alice", null, "db:2", ExportFormat.CSV, false));
+        assertThat(resumed).hasSize(2);
+        assertThat(resumed.get(1)).startsWith("db:4,d,");
+    }
+
+    @Test
+    void clicksOfOneCodeStreamAsGzippedNdjson() throws IOException {
+        insertLink(1, "a", "https://example.com/a", "alice");
+        insertLink(2, "b", "https://example.com/b", "alice");
+        for (int i = 0; i < 5; i++) {
+            jdbc.update("INSERT INTO url_clicks (clicked_at, ip_address, user_agent, url_id) VALUES"
+                    + " ('2024-01-02 10:00:00', '10.0.0.1', 'curl', ?)", i % 2 == 0 ? 1 : 2);
+        }
+
+        byte[] gzipped = run(ExportService.Dataset.CLICKS, null, "a", null, ExportFormat.NDJSON, true);
+        String ndjson = new String(new GZIPInputStream(new ByteArrayInputStream(gzipped)).readAllBytes(),
+                StandardCharsets.UTF_8);
+
+        List<String> lines = lines(ndjson.getBytes(StandardCharsets.UTF_8));
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).isEqualTo("{\"cursor\":\"db:1\",\"shortCode\":\"a\",\"clickedAt\":\"2024-01-02T10:00\","
+                + "\"ipAddress\":\"10.0.0.1\",\"userAgent\":\"curl\",\"referrer\":null}");
+    }
+
+    @Test
+    void rejectsBadRequestsAndExportsBeyondTheLimit() throws IOException {
+        assertThatThrownBy(() -> exportService.export(ExportService.Dataset.LINKS, "alice", "a", null, ExportFormat.CSV, false))
+                .hasMessageContaining("either owner or shortCode");
+        assertThatThrownBy(() -> exportService.export(ExportService.Dataset.LINKS, "alice", null, "db1:5", ExportFormat.CSV, false))
+                .hasMessageContaining("Invalid export cursor");
+
+        // The first export holds the only slot until its body has been written
+        StreamingResponseBody pending = exportService.export(ExportService.Dataset.LINKS, "alice", null, null, ExportFormat.CSV, false);
+        assertThatThrownBy(() -> exportService.export(ExportService.Dataset.LINKS, "alice", null, null, ExportFormat.CSV, false))
+                .isInstanceOf(ResponseStatusException.class);
+
+        pending.writeTo(new ByteArrayOutputStream());
+        assertThat(lines(run(ExportService.Dataset.LINKS, "alice", null, null, ExportFormat.CSV, false))).hasSize(1);
+    }
+
+    @Test
+    void slotIsReturnedWhenTheRequestEndsBeforeTheBodyRuns() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+
+        StreamingResponseBody body = exportService.export(ExportService.Dataset.LINKS, "alice", null, null, ExportFormat.CSV, false);
+
+        // Async processing starts, but the client goes away before the task gets a thread
+        StandardServletAsyncWebRequest asyncWebRequest = new StandardServletAsyncWebRequest(request, response);
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(asyncWebRequest);
+        asyncManager.setTaskExecutor(task -> { });
+        asyncManager.startCallableProcessing(() -> null);
+        assertThat(request.getAsyncContext().getTimeout()).isEqualTo(TimeUnit.MINUTES.toMillis(60));
+        asyncWebRequest.onError(new AsyncEvent(request.getAsyncContext(), new IOException("Broken pipe")));
+        asyncWebRequest.onComplete(new AsyncEvent(request.getAsyncContext()));
+
+        RequestContextHolder.resetRequestAttributes();
+        assertThat(lines(run(ExportService.Dataset.LINKS, "alice", null, null, ExportFormat.CSV, false))).hasSize(1);
+
+        // A body that starts after its request has ended doesn't run, nor give the slot back twice
+        ByteArrayOutputStream late = new ByteArrayOutputStream();
+        body.writeTo(late);
+        assertThat(late.size()).isZero();
+        StreamingResponseBody next = exportService.export(ExportService.Dataset.LINKS, "alice", null, null, ExportFormat.CSV, false);
+        assertThatThrownBy(() -> exportService.export(ExportService.Dataset.LINKS, "alice", null, null, ExportFormat.CSV, false))
+                .isInstanceOf(ResponseStatusException.class);
+        next.writeTo(new ByteArrayOutputStream());
+    }
+
+    private void insertLink(long id, String shortCode, String originalUrl, String owner) {
+        jdbc.update("INSERT INTO urls (id, short_code, original_url, created_at, click_count, owner)"
+                + " VALUES (?, ?, ?, '2024-01-01 00:00:00', 0, ?)", id, shortCode, originalUrl, owner);
+    }
+
+    private byte[] run(ExportService.Dataset dataset, String owner, String shortCode, String after,
+                       ExportFormat format, boolean gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(dataset, owner, shortCode, after, format, gzip).writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static List<String> lines(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8).lines().toList();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.urlShortner.loadtest;
+
+import com.example.urlShortner.service.RedisCacheService;
+import com.example.urlShortner.service.RedisCounterService;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replaces the two Redis-backed services with in-memory maps, so the app runs without a Redis
+ * server while everything in front of them (TieredCacheService, UrlService) stays the real thing.
+ * Needs spring.main.allow-bean-definition-overriding=true.
+ */
+@TestConfiguration
+class InProcessRedis {
+
+    @Bean
+    RedisCacheService redisCacheService() {
+        return new RedisCacheService(null) {
+            private final Map<String, Entry> values = new ConcurrentHashMap<>();
+
+            @Override
+            public void saveUrl(String shortCode, String originalUrl, long ttlInMinutes) {
+                values.put(shortCode, new Entry(originalUrl, System.nanoTime() + TimeUnit.MINUTES.toNanos(ttlInMinutes)));
+            }
+
+            @Override
+            public String getUrl(String shortCode) {
+                Entry entry = values.get(shortCode);
+                if (entry == null || entry.expiresAt - System.nanoTime() < 0) {
+                    return null;
+                }
+                return entry.value;
+            }
+
+            @Override
+            public long getTtlMillis(String shortCode) {
+                Entry entry = values.get(shortCode);
+                return entry == null ? 0 : Math.max(0, TimeUnit.NANOSECONDS.toMillis(entry.expiresAt - System.nanoTime()));
+            }
+
+            @Override
+            public void deleteUrl(String shortCode) {
+                values.remove(shortCode);
+            }
+        };
+    }
+
+    @Bean
+    RedisCounterService redisCounterService() {
+        return new RedisCounterService(null) {
+            private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+            @Override
+            public void incrementCounter(String shortCode) {
+                counters.computeIfAbsent(shortCode, code -> new LongAdder()).increment();
+            }
+
+            @Override
+            public long getCounter(String shortCode) {
+                LongAdder counter = counters.get(shortCode);
+                return counter == null ? 0 : counter.sum();
+            }
+
+            @Override
+            public void resetCounter(String shortCode) {
+                counters.remove(shortCode);
+            }
+        };
+    }
+
+    private record Entry(String value, long expiresAt) {
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.urlShortner.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop traffic: requests are sent on a schedule fixed up front (uniform or Poisson arrivals)
+ * whether or not earlier ones have finished, like real users. Latency is measured from the time a
+ * request was <em>meant</em> to start, so a stalled server (or a stalled generator) shows up in the
+ * percentiles instead of silently slowing the arrival rate (coordinated omission). A request not
+ * sent because {@code maxInFlight} were already out is recorded as waiting until the end of the run.
+ */
+final class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadScenario scenario;
+    private final URI baseUri;
+    private final List<String> codes;
+    private final ZipfSampler popularity;
+    private final ExecutorService httpExecutor;
+    private final HttpClient client;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong createdLinks = new AtomicLong();
+    private final List<LoadReport.Interval> intervals = new ArrayList<>();
+    private long runEnd;
+
+    LoadGenerator(LoadScenario scenario, URI baseUri, List<String> codes) {
+        this.scenario = scenario;
+        this.baseUri = baseUri;
+        this.codes = codes;
+        this.popularity = new ZipfSampler(codes.size(), scenario.zipfExponent());
+        this.httpExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(httpExecutor)
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    LoadReport run() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(scenario.seed());
+        int totalWeight = scenario.mix().values().stream().mapToInt(Integer::intValue).sum();
+        double meanGapNanos = 1e9 / scenario.rate();
+
+        long start = System.nanoTime();
+        long measureFrom = start + scenario.warmup().toNanos();
+        long end = measureFrom + scenario.duration().toNanos();
+        runEnd = end;
+        String startedAt = Instant.now().toString();
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long intervalNanos = scenario.reportInterval().toNanos();
+        reporter.scheduleAtFixedRate(() -> snapshot(measureFrom), measureFrom - System.nanoTime() + intervalNanos,
+                intervalNanos, TimeUnit.NANOSECONDS);
+
+        double offset = 0;
+        while (true) {
+            long intended = start + (long) offset;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            // Behind schedule? Don't wait, send right away: the delay is charged to these requests
+            send(pick(random, totalWeight), random, intended, intended >= measureFrom);
+            offset += scenario.poisson() ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+        }
+
+        long drainUntil = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(50);
+        }
+        reporter.shutdown();
+        reporter.awaitTermination(5, TimeUnit.SECONDS);
+        snapshot(measureFrom);
+        httpExecutor.shutdownNow();
+
+        return buildReport(startedAt);
+    }
+
+    /** Writes each operation's full latency distribution (microseconds, HdrHistogram .hgrm format). */
+    void writeHistograms(Path dir, String prefix) throws IOException {
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            Histogram total = entry.getValue().total;
+            if (total.getTotalCount() == 0) {
+                continue;
+            }
+            Path file = dir.resolve(prefix + "-" + entry.getKey().name().toLowerCase() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                total.outputPercentileDistribution(out, 1000.0); // values in ms
+            }
+        }
+    }
+
+    private void send(Operation operation, SplittableRandom random, long intended, boolean measured) {
+        OperationStats operationStats = stats.get(operation);
+        if (inFlight.incrementAndGet() > scenario.maxInFlight()) {
+            inFlight.decrementAndGet();
+            if (measured) {
+                // Never answered within the run: leaving it out would hide exactly the stall that caused it
+                operationStats.recorder.recordValue(Math.max(0, runEnd - intended) / 1_000);
+                operationStats.dropped.increment();
+            }
+            return;
+        }
+
+        client.sendAsync(request(operation, random), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    long latencyMicros = (System.nanoTime() - intended) / 1_000;
+                    inFlight.decrementAndGet();
+                    if (!measured) {
+                        return;
+                    }
+                    if (failure != null) {
+                        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause() : failure;
+                        operationStats.error(cause.getClass().getSimpleName());
+                    } else if (response.statusCode() != operation.expectedStatus) {
+                        operationStats.error("HTTP " + response.statusCode());
+                    } else {
+                        operationStats.recorder.recordValue(latencyMicros);
+                    }
+                });
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT);
+        switch (operation) {
+            case CREATE -> builder.uri(baseUri.resolve("/api/v1/shorten"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"url\":\"https://example.com/loadtest/created/"
+                            + createdLinks.incrementAndGet() + "\",\"owner\":\"loadtest\"}"));
+            case REDIRECT -> builder.uri(baseUri.resolve("/" + popularCode(random))).GET();
+            case ANALYTICS -> builder.uri(baseUri.resolve("/api/v1/urls/" + popularCode(random) + "/analytics")).GET();
+        }
+        return builder.build();
+    }
+
+    private String popularCode(SplittableRandom random) {
+        return codes.get(popularity.sample(random));
+    }
+
+    private Operation pick(SplittableRandom random, int totalWeight) {
+        int roll = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> weight : scenario.mix().entrySet()) {
+            roll -= weight.getValue();
+            if (roll < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("empty mix");
+    }
+
+    private synchronized void snapshot(long measureFrom) {
+        double seconds = scenario.reportInterval().toNanos() / 1e9;
+        double at = (System.nanoTime() - measureFrom) / 1e9;
+        Map<String, LoadReport.IntervalSummary> perOperation = new LinkedHashMap<>();
+        StringBuilder line = new StringBuilder(String.format("[%6.0fs] in flight %5d", at, inFlight.get()));
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            Histogram interval = operationStats.recorder.getIntervalHistogram();
+            operationStats.total.add(interval);
+            long errors = operationStats.errors.sum();
+            long newErrors = errors - operationStats.errorsReported;
+            operationStats.errorsReported = errors;
+            long dropped = operationStats.dropped.sum();
+            long newDropped = dropped - operationStats.droppedReported;
+            operationStats.droppedReported = dropped;
+            if (interval.getTotalCount() == 0 && newErrors == 0) {
+                continue;
+            }
+            LoadReport.IntervalSummary summary = new LoadReport.IntervalSummary(Math.max(0, interval.getTotalCount() - newDropped) / seconds,
+                    newErrors, millis(interval.getValueAtPercentile(99)), millis(interval.getMaxValue()));
+            perOperation.put(entry.getKey().name().toLowerCase(), summary);
+            line.append(String.format(" | %s %.0f/s p99 %.1fms err %d", entry.getKey().name().toLowerCase(),
+                    summary.throughput(), summary.p99Ms(), newErrors));
+        }
+        intervals.add(new LoadReport.Interval(Math.round(at), perOperation));
+        System.out.println(line);
+    }
+
+    private LoadReport buildReport(String startedAt) {
+        double seconds = scenario.duration().toNanos() / 1e9;
+        Map<String, LoadReport.OperationSummary> operations = new LinkedHashMap<>();
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            Histogram total = entry.getValue().total;
+            long errors = entry.getValue().errors.sum();
+            long dropped = entry.getValue().dropped.sum();
+            if (total.getTotalCount() == 0 && errors == 0) {
+                continue;
+            }
+            long served = total.getTotalCount() - dropped;
+            Map<String, Long> errorsByCause = new TreeMap<>();
+            entry.getValue().errorsByCause.forEach((cause, count) -> errorsByCause.put(cause, count.sum()));
+            operations.put(entry.getKey().name().toLowerCase(), new LoadReport.OperationSummary(
+                    served, dropped, errors, errorsByCause, served / seconds,
+                    total.getMean() / 1000.0,
+                    millis(total.getValueAtPercentile(50)), millis(total.getValueAtPercentile(90)),
+                    millis(total.getValueAtPercentile(99)), millis(total.getValueAtPercentile(99.9)),
+                    millis(total.getMaxValue())));
+        }
+        return new LoadReport(startedAt, scenario.describe(), operations, List.copyOf(intervals));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static final class OperationStats {
+        final Recorder recorder = new Recorder(3);
+        final Histogram total = new Histogram(3);
+        final LongAdder errors = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final Map<String, LongAdder> errorsByCause = new ConcurrentHashMap<>();
+        long errorsReported;
+        long droppedReported;
+
+        void error(String cause) {
+            errors.increment();
+            errorsByCause.computeIfAbsent(cause, key -> new LongAdder()).increment();
+        }
+    }
+}
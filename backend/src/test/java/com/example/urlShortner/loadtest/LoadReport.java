@@ -0,0 +1,86 @@
+package com.example.urlShortner.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Result of one run. Saved as JSON so later runs can be compared against it. */
+record LoadReport(String startedAt, Map<String, Object> scenario, Map<String, OperationSummary> operations,
+                  List<Interval> intervals) {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /** Latencies include dropped requests (see {@link LoadGenerator}); {@code count} and throughput don't. */
+    record OperationSummary(long count, long dropped, long errors, Map<String, Long> errorsByCause, double throughput,
+                            double meanMs, double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs) {
+
+        double errorRate() {
+            long total = count + dropped + errors;
+            return total == 0 ? 0 : (double) (dropped + errors) / total;
+        }
+    }
+
+    /** One report-interval worth of traffic, to spot drift over a soak run. */
+    record Interval(long atSeconds, Map<String, IntervalSummary> operations) {
+    }
+
+    record IntervalSummary(double throughput, long errors, double p99Ms, double maxMs) {
+    }
+
+    void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        JSON.writeValue(file.toFile(), this);
+    }
+
+    static LoadReport read(Path file) throws IOException {
+        return JSON.readValue(file.toFile(), LoadReport.class);
+    }
+
+    String summary() {
+        StringBuilder out = new StringBuilder(String.format("%n%-10s %10s %9s %8s %8s %8s %8s %8s %9s %9s%n",
+                "operation", "count", "req/s", "dropped", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        operations.forEach((name, op) -> out.append(String.format("%-10s %10d %9.1f %8d %8d %8.2f %8.2f %8.2f %9.2f %9.2f%n",
+                name, op.count(), op.throughput(), op.dropped(), op.errors(), op.p50Ms(), op.p90Ms(), op.p99Ms(),
+                op.p999Ms(), op.maxMs())));
+        operations.forEach((name, op) -> op.errorsByCause().forEach((cause, count) ->
+                out.append(String.format("  %s error: %s x%d%n", name, cause, count))));
+        return out.toString();
+    }
+
+    /**
+     * Side-by-side against an earlier run. Returns the operations whose p99 or error rate got worse
+     * by more than {@code tolerance} (0.2 = 20%); empty if nothing regressed.
+     */
+    List<String> compareTo(LoadReport baseline, double tolerance, StringBuilder out) throws IOException {
+        // Round-trip so number types match the ones read back from the baseline file
+        Map<?, ?> settings = JSON.readValue(JSON.writeValueAsString(scenario), Map.class);
+        if (!settings.equals(baseline.scenario())) {
+            out.append(String.format("WARNING: scenarios differ, comparison is only indicative%n  this run: %s%n  baseline: %s%n",
+                    settings, baseline.scenario()));
+        }
+
+        List<String> regressions = new ArrayList<>();
+        out.append(String.format("%n%-10s %21s %21s %21s%n", "vs baseline", "req/s", "p99 ms", "error rate"));
+        operations.forEach((name, op) -> {
+            OperationSummary before = baseline.operations().get(name);
+            if (before == null) {
+                return;
+            }
+            out.append(String.format("%-10s %9.1f -> %-9.1f %9.2f -> %-9.2f %8.4f -> %-8.4f%n", name,
+                    before.throughput(), op.throughput(), before.p99Ms(), op.p99Ms(), before.errorRate(), op.errorRate()));
+            if (op.p99Ms() > before.p99Ms() * (1 + tolerance)) {
+                regressions.add(String.format("%s p99 %.2fms -> %.2fms", name, before.p99Ms(), op.p99Ms()));
+            }
+            if (op.errorRate() > before.errorRate() * (1 + tolerance) + 0.001) {
+                regressions.add(String.format("%s error rate %.4f -> %.4f", name, before.errorRate(), op.errorRate()));
+            }
+        });
+        return regressions;
+    }
+}
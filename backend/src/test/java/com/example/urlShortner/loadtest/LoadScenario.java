@@ -0,0 +1,67 @@
+package com.example.urlShortner.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What to run, read from -Dloadtest.* system properties so runs can be repeated exactly:
+ * <pre>
+ *   loadtest.rate=5000                                 requests per second, across all operations
+ *   loadtest.duration=60s   loadtest.warmup=15s        measured time, and unmeasured time before it
+ *   loadtest.mix=create:5,redirect:90,analytics:5      relative weights
+ *   loadtest.links=10000    loadtest.zipf-exponent=1.0 seeded links and how skewed their popularity is
+ *   loadtest.arrivals=poisson                          or "uniform"
+ *   loadtest.max-in-flight=10000                       beyond this requests are dropped (latency: until the end)
+ *   loadtest.report-interval=10s   loadtest.seed=42
+ * </pre>
+ */
+record LoadScenario(double rate, Duration duration, Duration warmup, Map<Operation, Integer> mix, int links,
+                    double zipfExponent, boolean poisson, int maxInFlight, Duration reportInterval, long seed) {
+
+    static LoadScenario fromSystemProperties() {
+        return new LoadScenario(
+                Double.parseDouble(property("rate", "5000")),
+                DurationStyle.detectAndParse(property("duration", "60s")),
+                DurationStyle.detectAndParse(property("warmup", "15s")),
+                parseMix(property("mix", "create:5,redirect:90,analytics:5")),
+                Integer.parseInt(property("links", "10000")),
+                Double.parseDouble(property("zipf-exponent", "1.0")),
+                !property("arrivals", "poisson").equalsIgnoreCase("uniform"),
+                Integer.parseInt(property("max-in-flight", "10000")),
+                DurationStyle.detectAndParse(property("report-interval", "10s")),
+                Long.parseLong(property("seed", "42")));
+    }
+
+    /** The settings as recorded in a report, so two reports can be checked for comparability. */
+    Map<String, Object> describe() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("rate", rate);
+        settings.put("duration", duration.toString());
+        settings.put("warmup", warmup.toString());
+        settings.put("mix", mix.toString());
+        settings.put("links", links);
+        settings.put("zipfExponent", zipfExponent);
+        settings.put("arrivals", poisson ? "poisson" : "uniform");
+        settings.put("maxInFlight", maxInFlight);
+        settings.put("seed", seed);
+        return settings;
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] weight = part.trim().split(":");
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.urlShortner.loadtest;
+
+enum Operation {
+    CREATE(200),
+    REDIRECT(302),
+    ANALYTICS(200);
+
+    final int expectedStatus;
+
+    Operation(int expectedStatus) {
+        this.expectedStatus = expectedStatus;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.urlShortner.loadtest;
+
+import com.example.urlShortner.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load and soak test against the full app (H2 instead of MySQL, in-memory stand-ins for Redis).
+ * Named *LoadRun so Surefire's default includes skip it; only the loadtest profile runs it:
+ *
+ *   mvn test -Ploadtest -Dloadtest.rate=5000 -Dloadtest.duration=2m
+ *   mvn test -Ploadtest -Dloadtest.duration=2h -Dloadtest.rate=1000          (soak)
+ *   mvn test -Ploadtest -Dloadtest.baseline=target/loadtest/run-....json     (compare, fail on regressions)
+ *
+ * See {@link LoadScenario} for all settings. Each run writes run-&lt;time&gt;.json with the summary and
+ * per-interval numbers, plus one .hgrm latency distribution per operation, to target/loadtest.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.main.allow-bean-definition-overriding=true",
+        // The change stream needs a real Redis; caches are per-process here anyway
+        "app.events.enabled=false"
+})
+@Import(InProcessRedis.class)
+class ServiceLoadRun {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UrlService urlService;
+
+    @Test
+    void openLoopTraffic() throws Exception {
+        LoadScenario scenario = LoadScenario.fromSystemProperties();
+        List<String> codes = seedLinks(scenario);
+
+        System.out.printf("Load test %s against %d links%n", scenario.describe(), codes.size());
+        LoadGenerator generator = new LoadGenerator(scenario, URI.create("http://localhost:" + port), codes);
+        LoadReport report = generator.run();
+
+        Path dir = Path.of(System.getProperty("loadtest.report-dir", "target/loadtest"));
+        String name = "run-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        report.write(dir.resolve(name + ".json"));
+        generator.writeHistograms(dir, name);
+        System.out.println(report.summary());
+        System.out.println("Report: " + dir.resolve(name + ".json").toAbsolutePath());
+
+        String baseline = System.getProperty("loadtest.baseline");
+        if (baseline != null) {
+            StringBuilder comparison = new StringBuilder();
+            double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.2"));
+            List<String> regressions = report.compareTo(LoadReport.read(Path.of(baseline)), tolerance, comparison);
+            System.out.println(comparison);
+            assertThat(regressions).as("regressions against %s", baseline).isEmpty();
+        }
+        assertThat(report.operations()).isNotEmpty();
+    }
+
+    private List<String> seedLinks(LoadScenario scenario) {
+        List<String> codes = new ArrayList<>(scenario.links());
+        for (int i = 0; i < scenario.links(); i++) {
+            codes.add(urlService.createShortUrl("https://example.com/loadtest/" + i, null, "loadtest").getShortCode());
+        }
+        // Popularity rank shouldn't follow creation order
+        Collections.shuffle(codes, new Random(scenario.seed()));
+        return codes;
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.urlShortner.sharding;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.export.ExportFormat;
+import com.example.urlShortner.export.ExportService;
+import com.example.urlShortner.service.CacheService;
+import com.example.urlShortner.service.CounterService;
+import com.example.urlShortner.service.UrlService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.sharding.enabled=true",
+        "app.sharding.logical-shards=8",
+        "app.sharding.id-block-size=4",
+        "app.sharding.datasources[0].name=db0",
+        "app.sharding.datasources[0].url=jdbc:h2:mem:shard0;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.sharding.datasources[0].username=sa",
+        "app.sharding.datasources[1].name=db1",
+        "app.sharding.datasources[1].url=jdbc:h2:mem:shard1;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.sharding.datasources[1].username=sa",
+        "app.sharding.drain-timeout-ms=3000",
+        "app.sharding.placement-refresh-ms=1000",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+@AutoConfigureMockMvc
+class ShardingTests {
+
+    @Autowired
+    private UrlService urlService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardMigrator shardMigrator;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CacheService cacheService;
+
+    @MockBean
+    private CounterService counterService;
+
+    @Test
+    void linksAreSpreadAcrossShardsAndResolvedFromTheirCode() throws Exception {
+        List<Url> created = createLinks("alice", 32);
+
+        Set<String> physicalShards = created.stream()
+                .map(url -> shardRouter.physicalName(shardRouter.shardOf(url.getShortCode())))
+                .collect(Collectors.toSet());
+        assertThat(physicalShards).containsExactlyInAnyOrder("db0", "db1");
+
+        for (Url url : created) {
+            String physicalShard = shardRouter.physicalName(shardRouter.shardOf(url.getShortCode()));
+            assertThat(countUrls(physicalShard, url.getShortCode())).isEqualTo(1);
+
+            mockMvc.perform(get("/api/v1/urls/{shortCode}/analytics", url.getShortCode()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.originalUrl").value(url.getOriginalUrl()));
+        }
+
+        assertThat(urlService.getUrlsByOwner("alice")).hasSize(32);
+    }
+
+    @Test
+    void migratedShardKeepsItsLinksAndClicks() throws Exception {
+        List<Url> created = createLinks("bob", 16);
+        Url clicked = created.get(0);
+        int shard = shardRouter.shardOf(clicked.getShortCode());
+        String source = shardRouter.physicalName(shard);
+        String target = source.equals("db0") ? "db1" : "db0";
+
+        mockMvc.perform(get("/{shortCode}", clicked.getShortCode()))
+                .andExpect(status().is3xxRedirection());
+
+        MigrationResult result = shardMigrator.migrate(shard, target);
+
+        assertThat(result.getClicksCopied()).isGreaterThanOrEqualTo(1);
+        assertThat(shardRouter.physicalName(shard)).isEqualTo(target);
+
+        List<Url> moved = created.stream()
+                .filter(url -> shardRouter.shardOf(url.getShortCode()) == shard)
+                .toList();
+        for (Url url : moved) {
+            assertThat(countUrls(source, url.getShortCode())).isZero();
+            assertThat(countUrls(target, url.getShortCode())).isEqualTo(1);
+        }
+
+        mockMvc.perform(get("/api/v1/urls/{shortCode}/analytics", clicked.getShortCode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clickCount").value(1))
+                .andExpect(jsonPath("$.clickDetails.length()").value(1));
+
+        // New links on the moved shard continue the moved sequence instead of clashing with old codes
+        List<Url> more = createLinks("bob", 16);
+        assertThat(more).extracting(Url::getShortCode).doesNotContainAnyElementsOf(
+                created.stream().map(Url::getShortCode).toList());
+        assertThat(urlService.getUrlsByOwner("bob")).hasSize(32);
+    }
+
+    @Test
+    void catchUpPassPicksUpEditsAndPurgesMadeDuringTheCopy() throws Exception {
+        List<Url> created = createLinks("carol", 16);
+        List<Url> expired = IntStream.range(0, 16)
+                .mapToObj(i -> urlService.createShortUrl("https://example.com/carol/old/" + i,
+                        LocalDateTime.now().minusMinutes(1), "carol"))
+                .toList();
+        Url edited = created.get(0);
+        int shard = shardRouter.shardOf(edited.getShortCode());
+        Url purged = expired.stream().filter(url -> shardRouter.shardOf(url.getShortCode()) == shard).findFirst().orElseThrow();
+        String source = shardRouter.physicalName(shard);
+        String target = source.equals("db0") ? "db1" : "db0";
+
+        // An in-flight request holds the cutover back until both changes are made on the source
+        int held = shardRouter.enter(edited.getShortCode());
+        CompletableFuture<MigrationResult> migration = CompletableFuture.supplyAsync(() -> shardMigrator.migrate(shard, target));
+        awaitCopied(target, purged.getShortCode());
+
+        edited.setOriginalUrl("https://example.com/carol/edited");
+        ShardContext.run(source, () -> urlService.saveUrl(edited));
+        // What the hourly purge does on the source database
+        new JdbcTemplate(shardRouter.dataSource(source)).update("DELETE FROM urls WHERE short_code = ?", purged.getShortCode());
+        shardRouter.exit(held);
+        migration.get(10, TimeUnit.SECONDS);
+
+        assertThat(new JdbcTemplate(shardRouter.dataSource(target)).queryForObject(
+                "SELECT original_url FROM urls WHERE short_code = ?", String.class, edited.getShortCode()))
+                .isEqualTo("https://example.com/carol/edited");
+        assertThat(countUrls(target, purged.getShortCode())).isZero();
+        assertThat(countUrls(source, purged.getShortCode())).isZero();
+    }
+
+    @Test
+    void failedMigrationRemovesItsCopiesAndNothingIsReadTwiceMeanwhile() throws Exception {
+        List<Url> created = createLinks("dave", 16);
+        int shard = shardRouter.shardOf(created.get(0).getShortCode());
+        String source = shardRouter.physicalName(shard);
+        String target = source.equals("db0") ? "db1" : "db0";
+        List<String> onShard = created.stream().map(Url::getShortCode)
+                .filter(code -> shardRouter.shardOf(code) == shard)
+                .toList();
+
+        // Never released: the freeze times out after the bulk copy
+        int held = shardRouter.enter(onShard.get(0));
+        CompletableFuture<MigrationResult> migration = CompletableFuture.supplyAsync(() -> shardMigrator.migrate(shard, target));
+        try {
+            onShard.forEach(code -> awaitCopied(target, code));
+
+            assertThat(urlService.getUrlsByOwner("dave")).hasSize(16);
+            ByteArrayOutputStream export = new ByteArrayOutputStream();
+            exportService.export(ExportService.Dataset.LINKS, "dave", null, null, ExportFormat.NDJSON, false).writeTo(export);
+            assertThat(export.toString(StandardCharsets.UTF_8).lines()).hasSize(16);
+
+            assertThatThrownBy(() -> migration.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            shardRouter.exit(held);
+        }
+
+        assertThat(shardRouter.physicalName(shard)).isEqualTo(source);
+        assertThat(shardRouter.getMigrating()).isEmpty();
+        for (String code : onShard) {
+            assertThat(countUrls(source, code)).isEqualTo(1);
+            assertThat(countUrls(target, code)).isZero();
+        }
+        assertThat(new JdbcTemplate(shardRouter.dataSource(target)).queryForObject(
+                "SELECT COUNT(*) FROM shard_sequences WHERE shard_id = ?", Integer.class, shard)).isZero();
+        assertThat(urlService.getUrlsByOwner("dave")).hasSize(16);
+    }
+
+    @Test
+    void exportCursorFromBeforeAMigrationIsRejected() throws Exception {
+        List<Url> created = createLinks("erin", 16);
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        exportService.export(ExportService.Dataset.LINKS, "erin", null, null, ExportFormat.CSV, false).writeTo(export);
+        String cursor = export.toString(StandardCharsets.UTF_8).lines().skip(1).findFirst().orElseThrow().split(",")[0];
+
+        mockMvc.perform(get("/api/v1/export/links").param("owner", "erin").param("after", cursor))
+                .andExpect(status().isOk());
+
+        int shard = shardRouter.shardOf(created.get(0).getShortCode());
+        String target = shardRouter.physicalName(shard).equals("db0") ? "db1" : "db0";
+        shardMigrator.migrate(shard, target);
+
+        // Rows of the moved shard now sit in another database, behind or ahead of the cursor
+        mockMvc.perform(get("/api/v1/export/links").param("owner", "erin").param("after", cursor))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/export/links").param("owner", "erin").param("after", cursor.split("@")[0]))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void stateWrittenByAnotherInstanceIsHonoured() throws Exception {
+        Url url = createLinks("frank", 1).get(0);
+        int shard = shardRouter.shardOf(url.getShortCode());
+        JdbcTemplate catalog = new JdbcTemplate(shardRouter.dataSource(shardRouter.getCatalogShard()));
+        catalog.update("MERGE INTO shard_placement (logical_shard, physical_name, state) KEY (logical_shard) VALUES (?, ?, ?)",
+                shard, shardRouter.physicalName(shard), "FROZEN");
+        try {
+            shardRouter.refreshPlacement();
+            assertThat(shardRouter.getMigrating()).contains(shard);
+            assertThat(createLinks("frank", 16)).allMatch(created -> shardRouter.shardOf(created.getShortCode()) != shard);
+
+            CompletableFuture<Void> redirect = CompletableFuture.runAsync(() -> {
+                try {
+                    mockMvc.perform(get("/{shortCode}", url.getShortCode())).andExpect(status().is3xxRedirection());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            Thread.sleep(300);
+            assertThat(redirect).isNotDone();
+
+            catalog.update("UPDATE shard_placement SET state = 'ACTIVE' WHERE logical_shard = ?", shard);
+            shardRouter.refreshPlacement();
+            redirect.get(5, TimeUnit.SECONDS);
+        } finally {
+            catalog.update("UPDATE shard_placement SET state = 'ACTIVE' WHERE logical_shard = ?", shard);
+            shardRouter.refreshPlacement();
+        }
+    }
+
+    @Test
+    void migrationFailsWhenAnotherInstanceDoesNotSeeTheFreeze() {
+        Url url = createLinks("gina", 1).get(0);
+        int shard = shardRouter.shardOf(url.getShortCode());
+        String source = shardRouter.physicalName(shard);
+        String target = source.equals("db0") ? "db1" : "db0";
+        JdbcTemplate catalog = new JdbcTemplate(shardRouter.dataSource(shardRouter.getCatalogShard()));
+        // Refreshed once, then hangs
+        catalog.update("INSERT INTO shard_instances (instance_id, refreshed_at) VALUES ('stuck', CURRENT_TIMESTAMP(6))");
+        try {
+            assertThatThrownBy(() -> shardMigrator.migrate(shard, target))
+                    .isInstanceOf(IllegalStateException.class);
+        } finally {
+            catalog.update("DELETE FROM shard_instances WHERE instance_id = 'stuck'");
+        }
+
+        assertThat(shardRouter.physicalName(shard)).isEqualTo(source);
+        assertThat(shardRouter.getMigrating()).isEmpty();
+        assertThat(countUrls(source, url.getShortCode())).isEqualTo(1);
+        assertThat(countUrls(target, url.getShortCode())).isZero();
+    }
+
+    @Test
+    void linkWrittenToTheSourceJustAfterTheFlipIsNotPurged() throws Exception {
+        List<Url> created = createLinks("hank", 16);
+        int shard = shardRouter.shardOf(created.get(0).getShortCode());
+        String source = shardRouter.physicalName(shard);
+        String target = source.equals("db0") ? "db1" : "db0";
+
+        CompletableFuture<MigrationResult> migration = CompletableFuture.supplyAsync(() -> shardMigrator.migrate(shard, target));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!shardRouter.physicalName(shard).equals(target)) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+        // What a request on an instance that hadn't seen the freeze yet would have written
+        String late = shardRouter.encode(1_000_000, shard);
+        new JdbcTemplate(shardRouter.dataSource(source)).update("INSERT INTO urls (short_code, original_url, created_at,"
+                + " click_count, owner, updated_at) VALUES (?, 'https://example.com/hank/late', CURRENT_TIMESTAMP(6), 0, 'hank',"
+                + " CURRENT_TIMESTAMP(6))", late);
+        migration.get(10, TimeUnit.SECONDS);
+
+        assertThat(countUrls(target, late)).isEqualTo(1);
+        assertThat(countUrls(source, late)).isZero();
+    }
+
+    private void awaitCopied(String physicalShard, String shortCode) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (countUrls(physicalShard, shortCode) == 0) {
+            assertThat(System.currentTimeMillis()).as("copy of %s on %s", shortCode, physicalShard).isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private List<Url> createLinks(String owner, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> urlService.createShortUrl("https://example.com/" + owner + "/" + i, null, owner))
+                .toList();
+    }
+
+    private Integer countUrls(String physicalShard, String shortCode) {
+        return new JdbcTemplate(shardRouter.dataSource(physicalShard))
+                .queryForObject("SELECT COUNT(*) FROM urls WHERE short_code = ?", Integer.class, shortCode);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.urlShortner.storage;
+
+import com.example.urlShortner.entity.Url;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedUrlRepositoryTests {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void sortsPagesAndDeletesEverything() {
+        LinkStore store = new LinkStore(dataDir, 1 << 20, 16, 0.5);
+        EmbeddedUrlRepository repository = new EmbeddedUrlRepository(store);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            repository.save(Url.builder()
+                    .originalUrl("https://example.com/" + i)
+                    .owner(i % 2 == 0 ? "alice" : null)
+                    .createdAt(now.plusMinutes(i))
+                    .build());
+        }
+
+        assertThat(repository.findAll(Sort.by(Sort.Direction.DESC, "createdAt")))
+                .extracting(Url::getOriginalUrl)
+                .containsExactly("https://example.com/4", "https://example.com/3", "https://example.com/2",
+                        "https://example.com/1", "https://example.com/0");
+        assertThat(repository.findAll(Sort.by(Sort.Order.asc("owner").nullsFirst(), Sort.Order.desc("id"))))
+                .extracting(Url::getOriginalUrl)
+                .containsExactly("https://example.com/3", "https://example.com/1", "https://example.com/4",
+                        "https://example.com/2", "https://example.com/0");
+
+        Page<Url> page = repository.findAll(PageRequest.of(1, 2, Sort.by("createdAt")));
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent()).extracting(Url::getOriginalUrl)
+                .containsExactly("https://example.com/2", "https://example.com/3");
+
+        repository.deleteAll();
+        assertThat(repository.count()).isZero();
+        assertThat(repository.findByShortCode("1")).isEmpty();
+        store.close();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.urlShortner.storage;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.util.Base62;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.function.LongPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Startup (log recovery) time and redirect lookup latency of the embedded store at a few million
+ * links. Not part of the normal build:
+ *
+ *   mvn test -Pbenchmarks -Dtest=LinkStoreBenchmark
+ *
+ * The store uses the default app.embedded.* settings. Recovery is timed twice, with the default
+ * initial-capacity and with it set to the link count; both should match, as recovery sizes the
+ * index from the log. Segments are written to a temp directory
+ * (-Dembedded.benchmark.dir=... to put them on the disk being sized) and are in the page cache when
+ * recovered, as after a process restart. Latency is per call, so it includes the ~20 ns of
+ * System.nanoTime().
+ */
+class LinkStoreBenchmark {
+
+    private static final int LOOKUPS = 2_000_000;
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest(name = "{0} links")
+    @ValueSource(ints = {2_000_000, 5_000_000})
+    void recoveryAndLookups(int links) throws IOException {
+        Path dataDir = Files.createDirectories(Path.of(System.getProperty("embedded.benchmark.dir", tempDir.toString()))
+                .resolve("links-" + links));
+        EmbeddedStoreProperties defaults = new EmbeddedStoreProperties();
+
+        LinkStore store = open(dataDir, defaults.getInitialCapacity());
+        LocalDateTime now = LocalDateTime.now();
+        long start = System.nanoTime();
+        for (int i = 1; i <= links; i++) {
+            store.save(Url.builder()
+                    .originalUrl("https://example.com/articles/" + i + "?utm_source=newsletter")
+                    .owner("owner-" + (i % 1000))
+                    .createdAt(now)
+                    .clickCount(0L)
+                    .build());
+        }
+        long writeNanos = System.nanoTime() - start;
+        store.close();
+
+        start = System.nanoTime();
+        LinkStore growing = open(dataDir, defaults.getInitialCapacity());
+        long defaultRecoveryNanos = System.nanoTime() - start;
+        assertThat(growing.count()).isEqualTo(links);
+        growing.close();
+
+        long heapBefore = usedHeapAfterGc();
+        start = System.nanoTime();
+        LinkStore recovered = open(dataDir, links);
+        long sizedRecoveryNanos = System.nanoTime() - start;
+        long heap = usedHeapAfterGc() - heapBefore;
+        assertThat(recovered.count()).isEqualTo(links);
+
+        EmbeddedUrlRepository repository = new EmbeddedUrlRepository(recovered);
+        Histogram get = measure(links, id -> recovered.get(id).isPresent());
+        Histogram originalUrl = measure(links, id -> recovered.getOriginalUrl(id).isPresent());
+        Histogram byShortCode = measure(links, id -> repository.findByShortCode(Base62.encode(id)).isPresent());
+
+        System.out.printf("%nEmbedded store, %,d links, %,d MB on disk%n", links, directorySize(dataDir) >> 20);
+        System.out.printf("  writes               %,.0f links/s%n", links / (writeNanos / 1e9));
+        System.out.printf("  recovery             %,d ms with the default initial-capacity, %,d ms sized to the links"
+                + " (heap retained %,d MB)%n", defaultRecoveryNanos / 1_000_000, sizedRecoveryNanos / 1_000_000, heap >> 20);
+        report("get(id)", get);
+        report("getOriginalUrl(id)", originalUrl);
+        report("findByShortCode", byShortCode);
+        recovered.close();
+    }
+
+    private static LinkStore open(Path dataDir, int initialCapacity) {
+        EmbeddedStoreProperties defaults = new EmbeddedStoreProperties();
+        return new LinkStore(dataDir, defaults.getSegmentSizeMb() * 1024 * 1024, initialCapacity,
+                defaults.getCompactionThreshold());
+    }
+
+    // Random ids, so most lookups touch a cold index slot and segment page; the first pass only warms up the JIT
+    private static Histogram measure(int links, LongPredicate lookup) {
+        Histogram histogram = new Histogram(3);
+        for (int pass = 0; pass < 2; pass++) {
+            SplittableRandom random = new SplittableRandom(42 + pass);
+            histogram.reset();
+            for (int i = 0; i < LOOKUPS; i++) {
+                long id = 1 + random.nextInt(links);
+                long t0 = System.nanoTime();
+                boolean found = lookup.test(id);
+                histogram.recordValue(System.nanoTime() - t0);
+                assertThat(found).isTrue();
+            }
+        }
+        return histogram;
+    }
+
+    private static void report(String name, Histogram nanos) {
+        System.out.printf("  %-20s p50 %.2f us, p99 %.2f us, p99.9 %.2f us, max %.1f us%n", name,
+                nanos.getValueAtPercentile(50) / 1e3, nanos.getValueAtPercentile(99) / 1e3,
+                nanos.getValueAtPercentile(99.9) / 1e3, nanos.getMaxValue() / 1e3);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.urlShortner.storage;
+
+import com.example.urlShortner.entity.Url;
+import com.example.urlShortner.util.Base62;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LinkStoreTests {
+
+    private static final int SMALL_SEGMENT = 4096;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void linksSurviveARestart() {
+        LinkStore store = open(1 << 20);
+        Url url = store.save(link("https://example.com/a", "alice"));
+        url.setClickCount(3L);
+        url.setLastAccessedAt(LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_000));
+        store.save(url);
+        store.close();
+
+        LinkStore reopened = open(1 << 20);
+        Url loaded = reopened.get(url.getId()).orElseThrow();
+        assertThat(loaded.getOriginalUrl()).isEqualTo("https://example.com/a");
+        assertThat(loaded.getOwner()).isEqualTo("alice");
+        assertThat(loaded.getClickCount()).isEqualTo(3L);
+        assertThat(loaded.getLastAccessedAt()).isEqualTo(url.getLastAccessedAt());
+        assertThat(reopened.getOriginalUrl(url.getId())).contains("https://example.com/a");
+
+        // New ids continue after the recovered ones
+        assertThat(reopened.save(link("https://example.com/b", null)).getId()).isGreaterThan(url.getId());
+    }
+
+    @Test
+    void rejectedLinkDoesNotUseUpAnId() {
+        LinkStore store = open(1 << 20);
+        assertThatThrownBy(() -> store.save(link(null, "alice"))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(store.save(link("https://example.com/a", "alice")).getId()).isEqualTo(1L);
+        store.close();
+    }
+
+    @Test
+    void concurrentRedirectsAllCountAndDoNotUndoAnEdit() throws Exception {
+        LinkStore store = open(1 << 20);
+        EmbeddedUrlRepository repository = new EmbeddedUrlRepository(store);
+        Url url = store.save(link("https://example.com/a", "alice"));
+        int threads = 4;
+        int clicksEach = 5_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> redirects = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            redirects.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < clicksEach; i++) {
+                    repository.recordAccess(Base62.encode(url.getId()), LocalDateTime.now());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        Url edited = store.get(url.getId()).orElseThrow();
+        edited.setOriginalUrl("https://example.com/edited");
+        store.save(edited);
+        for (Future<?> redirect : redirects) {
+            redirect.get();
+        }
+        pool.shutdown();
+
+        Url loaded = store.get(url.getId()).orElseThrow();
+        assertThat(loaded.getOriginalUrl()).isEqualTo("https://example.com/edited");
+        assertThat(loaded.getClickCount()).isEqualTo((long) threads * clicksEach);
+        store.close();
+        assertThat(open(1 << 20).get(url.getId()).orElseThrow().getOriginalUrl()).isEqualTo("https://example.com/edited");
+    }
+
+    @Test
+    void tornRecordAtTheTailIsDropped() throws IOException {
+        LinkStore store = open(1 << 20);
+        Url first = store.save(link("https://example.com/1", null));
+        Url second = store.save(link("https://example.com/2", null));
+        store.close();
+
+        // Simulate a crash halfway through writing a third record
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int tail = endOfRecords(channel);
+            channel.write(ByteBuffer.allocate(12).putInt(64).putInt(0xBADC0DE).putInt(42).flip(), tail);
+        }
+
+        LinkStore reopened = open(1 << 20);
+        assertThat(reopened.count()).isEqualTo(2);
+        assertThat(reopened.get(first.getId())).isPresent();
+        assertThat(reopened.get(second.getId())).isPresent();
+
+        Url third = reopened.save(link("https://example.com/3", null));
+        reopened.close();
+        assertThat(open(1 << 20).get(third.getId()).map(Url::getOriginalUrl)).contains("https://example.com/3");
+    }
+
+    @Test
+    void compactionReclaimsDeletedAndOverwrittenRecords() throws IOException {
+        LinkStore store = open(SMALL_SEGMENT);
+        List<Url> links = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            links.add(store.save(link("https://example.com/" + i, "owner-" + (i % 3))));
+        }
+        for (int i = 0; i < 200; i++) {
+            if (i % 4 != 0) {
+                store.delete(links.get(i).getId());
+            } else {
+                links.get(i).setClickCount((long) i);
+                store.save(links.get(i));
+            }
+        }
+        int segmentsBefore = segments().size();
+
+        for (int i = 0; i < segmentsBefore; i++) {
+            store.compact();
+        }
+
+        assertThat(segments().size()).isLessThan(segmentsBefore);
+        assertThat(store.count()).isEqualTo(50);
+        store.close();
+
+        LinkStore reopened = open(SMALL_SEGMENT);
+        assertThat(reopened.count()).isEqualTo(50);
+        for (int i = 0; i < 200; i++) {
+            Url expected = links.get(i);
+            if (i % 4 != 0) {
+                assertThat(reopened.get(expected.getId())).isEmpty();
+            } else {
+                Url loaded = reopened.get(expected.getId()).orElseThrow();
+                assertThat(loaded.getOriginalUrl()).isEqualTo(expected.getOriginalUrl());
+                assertThat(loaded.getClickCount()).isEqualTo((long) i);
+            }
+        }
+    }
+
+    private LinkStore open(int segmentBytes) {
+        return new LinkStore(dataDir, segmentBytes, 16, 0.5);
+    }
+
+    private static Url link(String target, String owner) {
+        return Url.builder()
+                .originalUrl(target)
+                .owner(owner)
+                .clickCount(0L)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static int endOfRecords(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        int offset = LogSegment.HEADER_BYTES;
+        while (true) {
+            header.clear();
+            channel.read(header, offset);
+            int length = header.flip().getInt();
+            if (length <= 0) {
+                return offset;
+            }
+            offset += LogSegment.RECORD_HEADER_BYTES + length;
+        }
+    }
+}